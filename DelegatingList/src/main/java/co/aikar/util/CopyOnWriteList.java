@@ -0,0 +1,542 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread safe list for read mostly data, such as listener lists.
+ *
+ * Reads go through {@link #delegate(boolean) delegate(true)}, which is an immutable snapshot fetched with a single
+ * volatile read, so readers never lock or block each other or writers. Writes go through delegate(false), which
+ * builds a new snapshot and swaps it in with a compare and set, retrying if another write got there first.
+ *
+ * Snapshots are persistent 32 way tries, so appending, removing the last value and setting by index copy only
+ * the O(log n) path to that index, rather than the whole list as {@link java.util.concurrent.CopyOnWriteArrayList}
+ * does. Inserting or removing anywhere else rebuilds the list.
+ *
+ * Iterators and subLists are over the snapshot at the time they were created, and do not support modification.
+ *
+ * @param <T> Value Type
+ */
+public class CopyOnWriteList <T> implements DelegatingList<T> {
+
+    private final AtomicReference<Snapshot<T>> snapshot = new AtomicReference<>(Snapshot.empty());
+    private final List<T> writeView = new WriteView();
+
+    public CopyOnWriteList() {
+    }
+
+    public CopyOnWriteList(Collection<? extends T> values) {
+        addAll(values);
+    }
+
+    /**
+     * @return An immutable snapshot of the current contents, which later writes will not affect
+     */
+    public List<T> snapshot() {
+        return snapshot.get();
+    }
+
+    @Override
+    public List<T> delegate(boolean readOnly) {
+        return readOnly ? snapshot.get() : writeView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || snapshot.get().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return snapshot.get().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot.get().toString();
+    }
+
+    private boolean swap(Snapshot<T> cur, Snapshot<T> next) {
+        return cur == next || snapshot.compareAndSet(cur, next);
+    }
+
+    private class WriteView extends AbstractList<T> implements RandomAccess {
+
+        @Override
+        public T get(int index) {
+            return snapshot.get().get(index);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.get().size;
+        }
+
+        @Override
+        public T set(int index, T element) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                T old = cur.get(index);
+                if (swap(cur, cur.with(index, element))) {
+                    return old;
+                }
+            }
+        }
+
+        @Override
+        public boolean add(T t) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                if (swap(cur, cur.append(t))) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void add(int index, T element) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                checkPosition(index, cur.size);
+                Snapshot<T> next;
+                if (index == cur.size) {
+                    next = cur.append(element);
+                } else {
+                    Object[] values = new Object[cur.size + 1];
+                    cur.copyTo(values, 0, index, 0);
+                    values[index] = element;
+                    cur.copyTo(values, index, cur.size, index + 1);
+                    next = Snapshot.of(values, values.length);
+                }
+                if (swap(cur, next)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Appends every value in a single swap, so readers see all of them or none.
+         */
+        @Override
+        public boolean addAll(@NotNull Collection<? extends T> c) {
+            if (c.isEmpty()) {
+                return false;
+            }
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                Snapshot<T> next = cur;
+                for (T t : c) {
+                    next = next.append(t);
+                }
+                if (swap(cur, next)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public boolean addAll(int index, @NotNull Collection<? extends T> c) {
+            Object[] added = c.toArray();
+            if (added.length == 0) {
+                return false;
+            }
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                checkPosition(index, cur.size);
+                Object[] values = new Object[cur.size + added.length];
+                cur.copyTo(values, 0, index, 0);
+                System.arraycopy(added, 0, values, index, added.length);
+                cur.copyTo(values, index, cur.size, index + added.length);
+                if (swap(cur, Snapshot.of(values, values.length))) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public T remove(int index) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                T old = cur.get(index);
+                if (swap(cur, cur.without(index))) {
+                    return old;
+                }
+            }
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                int index = cur.indexOf(o);
+                if (index == -1) {
+                    return false;
+                }
+                if (swap(cur, cur.without(index))) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super T> filter) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                Object[] values = new Object[cur.size];
+                int size = 0;
+                for (T t : cur) {
+                    if (!filter.test(t)) {
+                        values[size++] = t;
+                    }
+                }
+                if (size == cur.size) {
+                    return false;
+                }
+                if (swap(cur, Snapshot.of(values, size))) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public boolean removeAll(@NotNull Collection<?> c) {
+            return removeIf(c::contains);
+        }
+
+        @Override
+        public boolean retainAll(@NotNull Collection<?> c) {
+            return removeIf(t -> !c.contains(t));
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<T> operator) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                Object[] values = cur.toArray();
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = operator.apply(cast(values[i]));
+                }
+                if (swap(cur, Snapshot.of(values, values.length))) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void sort(Comparator<? super T> c) {
+            while (true) {
+                Snapshot<T> cur = snapshot.get();
+                Object[] values = cur.toArray();
+                // Every value is a T, and a null comparator sorts naturally either way
+                @SuppressWarnings("unchecked")
+                Comparator<Object> comparator = (Comparator<Object>) c;
+                Arrays.sort(values, comparator);
+                if (swap(cur, Snapshot.of(values, values.length))) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            snapshot.set(Snapshot.empty());
+        }
+
+        @NotNull
+        @Override
+        public Iterator<T> iterator() {
+            return snapshot.get().iterator();
+        }
+
+        @NotNull
+        @Override
+        public ListIterator<T> listIterator(int index) {
+            return snapshot.get().listIterator(index);
+        }
+
+        @NotNull
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            return snapshot.get().subList(fromIndex, toIndex);
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return snapshot.get().spliterator();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    private static void checkPosition(int index, int size) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * An immutable version of the list, stored as a trie of 32 value leaves with the last, partial leaf kept
+     * separately as the tail so appends usually only copy the tail.
+     */
+    private static final class Snapshot <T> extends AbstractList<T> implements RandomAccess {
+        private static final Object[] EMPTY_NODE = new Object[32];
+        private static final Snapshot<?> EMPTY = new Snapshot<>(0, 5, EMPTY_NODE, new Object[0]);
+
+        private final int size;
+        private final int shift;
+        private final Object[] root;
+        private final Object[] tail;
+
+        private Snapshot(int size, int shift, Object[] root, Object[] tail) {
+            this.size = size;
+            this.shift = shift;
+            this.root = root;
+            this.tail = tail;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Snapshot<T> empty() {
+            return (Snapshot<T>) EMPTY;
+        }
+
+        static <T> Snapshot<T> of(Object[] values, int size) {
+            Snapshot<T> snapshot = empty();
+            for (int i = 0; i < size; i++) {
+                snapshot = snapshot.append(cast(values[i]));
+            }
+            return snapshot;
+        }
+
+        private int tailOffset() {
+            return size < 32 ? 0 : ((size - 1) >>> 5) << 5;
+        }
+
+        private Object[] leafFor(int index) {
+            if (index >= tailOffset()) {
+                return tail;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= 5) {
+                node = (Object[]) node[(index >>> level) & 31];
+            }
+            return node;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return cast(leafFor(index)[index & 31]);
+        }
+
+        Snapshot<T> with(int index, T value) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (index >= tailOffset()) {
+                Object[] newTail = tail.clone();
+                newTail[index & 31] = value;
+                return new Snapshot<>(size, shift, root, newTail);
+            }
+            return new Snapshot<>(size, shift, with(shift, root, index, value), tail);
+        }
+
+        private static Object[] with(int level, Object[] node, int index, Object value) {
+            Object[] copy = node.clone();
+            if (level == 0) {
+                copy[index & 31] = value;
+            } else {
+                int sub = (index >>> level) & 31;
+                copy[sub] = with(level - 5, (Object[]) node[sub], index, value);
+            }
+            return copy;
+        }
+
+        Snapshot<T> append(T value) {
+            if (size - tailOffset() < 32) {
+                Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+                newTail[tail.length] = value;
+                return new Snapshot<>(size + 1, shift, root, newTail);
+            }
+            // The tail is full, push it into the trie and start a new one
+            Object[] newRoot;
+            int newShift = shift;
+            if ((size >>> 5) > (1 << shift)) {
+                newRoot = new Object[32];
+                newRoot[0] = root;
+                newRoot[1] = newPath(shift, tail);
+                newShift += 5;
+            } else {
+                newRoot = pushTail(shift, root, tail);
+            }
+            return new Snapshot<>(size + 1, newShift, newRoot, new Object[]{value});
+        }
+
+        private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+            int sub = ((size - 1) >>> level) & 31;
+            Object[] copy = parent.clone();
+            if (level == 5) {
+                copy[sub] = tailNode;
+            } else {
+                Object[] child = (Object[]) parent[sub];
+                copy[sub] = child != null ? pushTail(level - 5, child, tailNode) : newPath(level - 5, tailNode);
+            }
+            return copy;
+        }
+
+        private static Object[] newPath(int level, Object[] node) {
+            if (level == 0) {
+                return node;
+            }
+            Object[] path = new Object[32];
+            path[0] = newPath(level - 5, node);
+            return path;
+        }
+
+        Snapshot<T> without(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (index == size - 1) {
+                return removeLast();
+            }
+            Object[] values = new Object[size - 1];
+            copyTo(values, 0, index, 0);
+            copyTo(values, index + 1, size, index);
+            return of(values, values.length);
+        }
+
+        private Snapshot<T> removeLast() {
+            if (size == 1) {
+                return empty();
+            }
+            if (size - tailOffset() > 1) {
+                return new Snapshot<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+            }
+            // The tail is emptied, so the last leaf of the trie becomes the new tail
+            Object[] newTail = leafFor(size - 2);
+            Object[] newRoot = popTail(shift, root);
+            int newShift = shift;
+            if (newRoot == null) {
+                newRoot = EMPTY_NODE;
+            }
+            if (shift > 5 && newRoot[1] == null) {
+                newRoot = (Object[]) newRoot[0];
+                newShift -= 5;
+            }
+            return new Snapshot<>(size - 1, newShift, newRoot, newTail);
+        }
+
+        private Object[] popTail(int level, Object[] node) {
+            int sub = ((size - 2) >>> level) & 31;
+            if (level > 5) {
+                Object[] child = popTail(level - 5, (Object[]) node[sub]);
+                if (child == null && sub == 0) {
+                    return null;
+                }
+                Object[] copy = node.clone();
+                copy[sub] = child;
+                return copy;
+            }
+            if (sub == 0) {
+                return null;
+            }
+            Object[] copy = node.clone();
+            copy[sub] = null;
+            return copy;
+        }
+
+        /**
+         * Copies the values in [from, to) into dest starting at destPos, a leaf at a time.
+         */
+        void copyTo(Object[] dest, int from, int to, int destPos) {
+            int i = from;
+            while (i < to) {
+                Object[] leaf = leafFor(i);
+                int len = Math.min(to - i, 32 - (i & 31));
+                System.arraycopy(leaf, i & 31, dest, destPos, len);
+                i += len;
+                destPos += len;
+            }
+        }
+
+        @NotNull
+        @Override
+        public Object[] toArray() {
+            Object[] values = new Object[size];
+            copyTo(values, 0, size, 0);
+            return values;
+        }
+
+        @NotNull
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int index;
+                private Object[] leaf;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size;
+                }
+
+                @Override
+                public T next() {
+                    if (index >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    if ((index & 31) == 0 || leaf == null) {
+                        leaf = leafFor(index);
+                    }
+                    return cast(leaf[index++ & 31]);
+                }
+            };
+        }
+    }
+}
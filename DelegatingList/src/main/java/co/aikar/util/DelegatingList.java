@@ -62,6 +62,14 @@ public interface DelegatingList <T> extends List<T> {
         return delegate(false).iterator();
     }
 
+    /**
+     * Iterates the read only delegate, for callers that will not remove through the iterator.
+     */
+    @NotNull
+    default Iterator<T> readIterator() {
+        return delegate(true).iterator();
+    }
+
     @NotNull
     @Override
     default Object[] toArray() {
@@ -86,7 +94,7 @@ public interface DelegatingList <T> extends List<T> {
 
     @Override
     default boolean containsAll(@NotNull Collection<?> c) {
-        return delegate(false).containsAll(c);
+        return delegate(true).containsAll(c);
     }
 
     @Override
@@ -174,7 +182,7 @@ public interface DelegatingList <T> extends List<T> {
 
     @Override
     default Spliterator<T> spliterator() {
-        return delegate(false).spliterator();
+        return delegate(true).spliterator();
     }
 
     @Override
@@ -184,12 +192,12 @@ public interface DelegatingList <T> extends List<T> {
 
     @Override
     default Stream<T> stream() {
-        return delegate(false).stream();
+        return delegate(true).stream();
     }
 
     @Override
     default Stream<T> parallelStream() {
-        return delegate(false).parallelStream();
+        return delegate(true).parallelStream();
     }
 
     @Override
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A list that does not allocate its backing list until it is first written to, such as the buckets of a
+ * {@link java.util.Map} of lists where most keys end up empty.
+ *
+ * Until then, {@link #delegate(boolean) delegate(true)} serves reads from the shared {@link Collections#emptyList()},
+ * and iterator() does not allocate either. listIterator() and subList() count as writes, as they support adding.
+ *
+ * When created with releaseWhenEmpty, the backing list is dropped again as soon as a removal leaves it empty,
+ * whether through this list or its iterator. Reads never release it, and neither does removing through
+ * listIterator() or subList(), which could add to the list again afterwards; the next removal through this list does.
+ *
+ * Not thread safe, as with the backing lists it is meant for.
+ *
+ * @see LazyDelegatingMap
+ * @param <T> Value Type
+ */
+public class LazyDelegatingList <T> implements DelegatingList<T> {
+
+    private final Supplier<List<T>> listSupplier;
+    private final boolean releaseWhenEmpty;
+    private List<T> list;
+
+    public LazyDelegatingList() {
+        this(ArrayList::new);
+    }
+
+    public LazyDelegatingList(Supplier<List<T>> listSupplier) {
+        this(listSupplier, false);
+    }
+
+    /**
+     * @param listSupplier Creates the backing list on the first write
+     * @param releaseWhenEmpty Drop the backing list once it is empty again, going back to the shared empty list
+     */
+    public LazyDelegatingList(Supplier<List<T>> listSupplier, boolean releaseWhenEmpty) {
+        this.listSupplier = listSupplier;
+        this.releaseWhenEmpty = releaseWhenEmpty;
+    }
+
+    /**
+     * @return Whether the backing list is currently allocated
+     */
+    public boolean isAllocated() {
+        return list != null;
+    }
+
+    @Override
+    public List<T> delegate(boolean readOnly) {
+        if (readOnly) {
+            return list != null ? list : Collections.emptyList();
+        }
+        if (list == null) {
+            list = listSupplier.get();
+        }
+        return list;
+    }
+
+    /**
+     * Iterates the current backing list, releasing it if removing through the iterator empties it.
+     * The iterator has nothing left to return at that point, so it never sees the released list again.
+     */
+    @NotNull
+    @Override
+    public Iterator<T> iterator() {
+        if (list == null) {
+            return Collections.emptyIterator();
+        }
+        Iterator<T> it = list.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                releaseIfEmpty();
+            }
+        };
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (list == null) {
+            return false;
+        }
+        boolean removed = list.remove(o);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public T remove(int index) {
+        if (list == null) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+        }
+        T removed = list.remove(index);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) {
+        if (list == null) {
+            return false;
+        }
+        boolean removed = list.removeAll(c);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) {
+        if (list == null) {
+            return false;
+        }
+        boolean removed = list.retainAll(c);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        if (list == null) {
+            return false;
+        }
+        boolean removed = list.removeIf(filter);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        if (list != null) {
+            list.clear();
+            releaseIfEmpty();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || delegate(true).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate(true).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return delegate(true).toString();
+    }
+
+    private void releaseIfEmpty() {
+        if (releaseWhenEmpty && list != null && list.isEmpty()) {
+            list = null;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread safe list guarding a non thread safe backing list with a {@link StampedLock}, for read heavy shared lists.
+ *
+ * size and isEmpty read without locking and only take the read lock if a write happened during the read. All other
+ * reads through {@link #delegate(boolean) delegate(true)} take the read lock, including get, and contains and
+ * indexOf, which call back into the values' equals. Everything through delegate(false) takes the write lock.
+ *
+ * The lock is not reentrant, so functions passed to forEach, removeIf, replaceAll and sort must not use this list.
+ * Iterators and subLists are over a copy taken under the read lock, and do not support modification.
+ *
+ * @see LockingMap
+ * @param <T> Value Type
+ */
+public class LockingList <T> implements DelegatingList<T> {
+
+    private final List<T> list;
+    private final StampedLock lock = new StampedLock();
+    private final List<T> readView = new ReadView();
+    private final List<T> writeView = new WriteView();
+
+    public LockingList() {
+        this(new ArrayList<>());
+    }
+
+    /**
+     * @param backingList List to guard, which must not be used directly afterwards
+     */
+    public LockingList(List<T> backingList) {
+        this.list = backingList;
+    }
+
+    @Override
+    public List<T> delegate(boolean readOnly) {
+        return readOnly ? readView : writeView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || readLocked(list -> list.equals(o));
+    }
+
+    @Override
+    public int hashCode() {
+        return readLocked(List::hashCode);
+    }
+
+    @Override
+    public String toString() {
+        return readLocked(List::toString);
+    }
+
+    /**
+     * Reads without locking, for reads that only look at a field of the backing list and so cannot fail mid write.
+     */
+    private <R> R optimisticRead(Function<List<T>, R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            R result = reader.apply(list);
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        return readLocked(reader);
+    }
+
+    private <R> R readLocked(Function<List<T>, R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.apply(list);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R write(Function<List<T>, R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.apply(list);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private List<T> copy() {
+        return Collections.unmodifiableList(readLocked(ArrayList::new));
+    }
+
+    private class ReadView extends AbstractList<T> {
+
+        @Override
+        public T get(int index) {
+            return readLocked(list -> list.get(index));
+        }
+
+        @Override
+        public int size() {
+            return optimisticRead(List::size);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return optimisticRead(List::isEmpty);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return readLocked(list -> list.contains(o));
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return readLocked(list -> list.indexOf(o));
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return readLocked(list -> list.lastIndexOf(o));
+        }
+
+        @Override
+        public boolean containsAll(@NotNull Collection<?> c) {
+            return readLocked(list -> list.containsAll(c));
+        }
+
+        @NotNull
+        @Override
+        public Object[] toArray() {
+            return readLocked(List::toArray);
+        }
+
+        @NotNull
+        @Override
+        public <T1> T1[] toArray(@NotNull T1[] a) {
+            return readLocked(list -> list.toArray(a));
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action) {
+            readLocked(list -> {
+                list.forEach(action);
+                return null;
+            });
+        }
+
+        @NotNull
+        @Override
+        public Iterator<T> iterator() {
+            return copy().iterator();
+        }
+
+        @NotNull
+        @Override
+        public ListIterator<T> listIterator(int index) {
+            return copy().listIterator(index);
+        }
+
+        @NotNull
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            return copy().subList(fromIndex, toIndex);
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return copy().spliterator();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || readLocked(list -> list.equals(o));
+        }
+
+        @Override
+        public int hashCode() {
+            return readLocked(List::hashCode);
+        }
+
+        @Override
+        public String toString() {
+            return readLocked(List::toString);
+        }
+    }
+
+    private class WriteView extends ReadView {
+
+        @Override
+        public T set(int index, T element) {
+            return write(list -> list.set(index, element));
+        }
+
+        @Override
+        public boolean add(T t) {
+            return write(list -> list.add(t));
+        }
+
+        @Override
+        public void add(int index, T element) {
+            write(list -> {
+                list.add(index, element);
+                return null;
+            });
+        }
+
+        @Override
+        public T remove(int index) {
+            return write(list -> list.remove(index));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return write(list -> list.remove(o));
+        }
+
+        @Override
+        public boolean addAll(@NotNull Collection<? extends T> c) {
+            return write(list -> list.addAll(c));
+        }
+
+        @Override
+        public boolean addAll(int index, @NotNull Collection<? extends T> c) {
+            return write(list -> list.addAll(index, c));
+        }
+
+        @Override
+        public boolean removeAll(@NotNull Collection<?> c) {
+            return write(list -> list.removeAll(c));
+        }
+
+        @Override
+        public boolean retainAll(@NotNull Collection<?> c) {
+            return write(list -> list.retainAll(c));
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super T> filter) {
+            return write(list -> list.removeIf(filter));
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<T> operator) {
+            write(list -> {
+                list.replaceAll(operator);
+                return null;
+            });
+        }
+
+        @Override
+        public void sort(Comparator<? super T> c) {
+            write(list -> {
+                list.sort(c);
+                return null;
+            });
+        }
+
+        @Override
+        public void clear() {
+            write(list -> {
+                list.clear();
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class CopyOnWriteListTest {
+
+    /**
+     * Grows past the tail, one full level and into a third, then shrinks back, checking the leaves at each boundary.
+     */
+    @Test
+    public void appendAndPopAcrossLevels() {
+        List<Integer> list = new CopyOnWriteList<>();
+        int max = 32 * 32 * 32 + 100;
+        for (int i = 0; i < max; i++) {
+            list.add(i);
+            if ((i & 31) == 31 || i < 70) {
+                assertEquals(i + 1, list.size());
+                assertEquals(i, (int) list.get(i));
+                assertEquals(0, (int) list.get(0));
+            }
+        }
+        for (int i = 0; i < max; i += 997) {
+            assertEquals(i, (int) list.get(i));
+        }
+        for (int i = max - 1; i >= 0; i--) {
+            assertEquals(i, (int) list.remove(i));
+            if ((i & 31) == 0 && i > 0) {
+                assertEquals(i - 1, (int) list.get(i - 1));
+            }
+        }
+        assertEquals(0, list.size());
+    }
+
+    @Test
+    public void matchesArrayList() {
+        Random random = new Random(1);
+        List<Integer> list = new CopyOnWriteList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            Integer value = random.nextInt(100);
+            int size = expected.size();
+            switch (random.nextInt(10)) {
+                case 0:
+                case 1:
+                case 2:
+                case 3:
+                    list.add(value);
+                    expected.add(value);
+                    break;
+                case 4:
+                    int idx = random.nextInt(size + 1);
+                    list.add(idx, value);
+                    expected.add(idx, value);
+                    break;
+                case 5:
+                    if (size > 0) {
+                        idx = random.nextInt(4) == 0 ? random.nextInt(size) : size - 1;
+                        assertEquals(expected.remove(idx), list.remove(idx));
+                    }
+                    break;
+                case 6:
+                    if (size > 0) {
+                        idx = random.nextInt(size);
+                        assertEquals(expected.set(idx, value), list.set(idx, value));
+                    }
+                    break;
+                case 7:
+                    assertEquals(expected.remove(value), list.remove(value));
+                    break;
+                case 8:
+                    List<Integer> values = Arrays.asList(value, value + 1, value + 2);
+                    idx = random.nextInt(size + 1);
+                    if (random.nextBoolean()) {
+                        list.addAll(values);
+                        expected.addAll(values);
+                    } else {
+                        list.addAll(idx, values);
+                        expected.addAll(idx, values);
+                    }
+                    break;
+                default:
+                    if (random.nextInt(20) == 0) {
+                        assertEquals(expected.removeIf(v -> v % 7 == 0), list.removeIf(v -> v % 7 == 0));
+                    }
+            }
+            assertEquals(expected.size(), list.size());
+            if (i % 500 == 0) {
+                assertEquals(expected, list);
+                assertEquals(expected.hashCode(), list.hashCode());
+                assertEquals(expected.indexOf(value), list.indexOf(value));
+            }
+        }
+        list.sort(Comparator.reverseOrder());
+        expected.sort(Comparator.reverseOrder());
+        assertEquals(expected, list);
+        list.replaceAll(v -> v * 2);
+        expected.replaceAll(v -> v * 2);
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void snapshotsDoNotChange() {
+        CopyOnWriteList<Integer> list = new CopyOnWriteList<>();
+        for (int i = 0; i < 2000; i++) {
+            list.add(i);
+        }
+        List<Integer> snapshot = list.snapshot();
+        List<Integer> copy = new ArrayList<>(snapshot);
+        for (int i = 0; i < 500; i++) {
+            list.set(i, -1);
+            list.remove(list.size() - 1);
+        }
+        list.add(0, 5);
+        assertEquals(copy, snapshot);
+        try {
+            snapshot.add(1);
+            fail("snapshots are read only");
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void iteratorsAndSubListsAreSnapshots() {
+        List<Integer> list = new CopyOnWriteList<>(Arrays.asList(0, 1, 2, 3, 4, 5));
+        ListIterator<Integer> it = list.listIterator(2);
+        List<Integer> sub = list.subList(1, 4);
+        list.clear();
+        assertEquals(2, (int) it.next());
+        assertEquals(Arrays.asList(1, 2, 3), sub);
+        assertFalse(list.iterator().hasNext());
+        try {
+            it.remove();
+            fail("iterators do not support modification");
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void spliteratorCoversSnapshot() {
+        List<Integer> list = new CopyOnWriteList<>();
+        long sum = 0;
+        for (int i = 0; i < 5000; i++) {
+            list.add(i);
+            sum += i;
+        }
+        assertEquals(sum, list.parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(5000, list.stream().count());
+    }
+}
@@ -0,0 +1,715 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A thread safe map for read mostly data, such as listener or config registries.
+ *
+ * Reads go through {@link #delegate(boolean) delegate(true)}, which is an immutable snapshot fetched with a single
+ * volatile read, so readers never lock or block each other or writers. Writes go through delegate(false), which
+ * builds a new snapshot and swaps it in with a compare and set, retrying if another write got there first.
+ *
+ * Snapshots are persistent hash array mapped tries, so a write copies only the O(log n) path to the changed key
+ * and shares the rest with the previous snapshot, rather than copying the whole map.
+ *
+ * As with {@link java.util.concurrent.ConcurrentMap}, the functions passed to compute, merge and friends may be
+ * called more than once when writes race, so they should be free of side effects.
+ * Iterators are over the snapshot at the time they were created, and removing through them removes by key.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public class CopyOnWriteMap <K, V> implements DelegatingMap<K, V> {
+
+    private static final Object NOT_FOUND = new Object();
+    private static final Snapshot<?, ?> EMPTY = new Snapshot<>(null, 0);
+
+    private final AtomicReference<Snapshot<K, V>> snapshot = new AtomicReference<>(emptySnapshot());
+    private final Map<K, V> writeView = new WriteView();
+
+    public CopyOnWriteMap() {
+    }
+
+    public CopyOnWriteMap(Map<? extends K, ? extends V> map) {
+        putAll(map);
+    }
+
+    /**
+     * @return An immutable snapshot of the current contents, which later writes will not affect
+     */
+    public Map<K, V> snapshot() {
+        return snapshot.get();
+    }
+
+    @Override
+    public Map<K, V> delegate(boolean isReadOnly) {
+        return isReadOnly ? snapshot.get() : writeView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || snapshot.get().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return snapshot.get().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot.get().toString();
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Snapshot<K, V> emptySnapshot() {
+        return (Snapshot<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unwrap(Object value) {
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    private static <T> T[] array(T... values) {
+        return values;
+    }
+
+    /**
+     * Swaps in a snapshot with the key remapped, retrying until no other write got in between.
+     *
+     * @param remap Given the current value or NOT_FOUND, returns the new value or NOT_FOUND to remove the key
+     * @return The value the remap was applied to, or NOT_FOUND
+     */
+    private Object update(Object key, UnaryOperator<Object> remap) {
+        int hash = hash(key);
+        while (true) {
+            Snapshot<K, V> cur = snapshot.get();
+            Object old = cur.find(key, hash);
+            Object val = remap.apply(old);
+            if (val == old) {
+                return old;
+            }
+            Snapshot<K, V> next;
+            if (val == NOT_FOUND) {
+                next = cur.without(key, hash);
+            } else {
+                // Only put and friends add keys, and they pass a K
+                @SuppressWarnings("unchecked")
+                K typedKey = (K) key;
+                next = cur.with(typedKey, hash, unwrap(val), old == NOT_FOUND);
+            }
+            if (snapshot.compareAndSet(cur, next)) {
+                return old;
+            }
+        }
+    }
+
+    private class WriteView extends SnapshotViewMap<K, V> {
+
+        @Override
+        Collection<Entry<K, V>> snapshotEntries() {
+            return snapshot.get().entrySet();
+        }
+
+        @Override
+        void removeKey(Object key) {
+            remove(key);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.get().size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return snapshot.get().containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return snapshot.get().get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return unwrap(update(key, old -> value));
+        }
+
+        @Override
+        public V remove(Object key) {
+            return unwrap(update(key, old -> NOT_FOUND));
+        }
+
+        /**
+         * Puts every entry in a single swap, so readers see all of them or none.
+         */
+        @Override
+        public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+            if (m.isEmpty()) {
+                return;
+            }
+            while (true) {
+                Snapshot<K, V> cur = snapshot.get();
+                Snapshot<K, V> next = cur;
+                for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+                    K key = entry.getKey();
+                    int hash = hash(key);
+                    next = next.with(key, hash, entry.getValue(), next.find(key, hash) == NOT_FOUND);
+                }
+                if (snapshot.compareAndSet(cur, next)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void clear() {
+            snapshot.set(emptySnapshot());
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            while (true) {
+                Snapshot<K, V> cur = snapshot.get();
+                Snapshot<K, V> next = cur;
+                LeafIterator<K, V> it = new LeafIterator<>(cur.root);
+                while (it.hasNext()) {
+                    Leaf<K, V> leaf = it.nextLeaf();
+                    next = next.with(leaf.key, leaf.hash, function.apply(leaf.key, leaf.value), false);
+                }
+                if (snapshot.compareAndSet(cur, next)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            return unwrap(update(key, old -> old == NOT_FOUND || old == null ? value : old));
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            Object old = update(key, cur -> cur != NOT_FOUND && Objects.equals(cur, value) ? NOT_FOUND : cur);
+            return old != NOT_FOUND && Objects.equals(old, value);
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            Object old = update(key, cur -> cur != NOT_FOUND && Objects.equals(cur, oldValue) ? newValue : cur);
+            return old != NOT_FOUND && Objects.equals(old, oldValue);
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            return unwrap(update(key, old -> old == NOT_FOUND ? old : value));
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            Object[] result = new Object[1];
+            update(key, old -> {
+                Object val = old;
+                if (old == NOT_FOUND || old == null) {
+                    V computed = mappingFunction.apply(key);
+                    if (computed != null) {
+                        val = computed;
+                    }
+                }
+                result[0] = val;
+                return val;
+            });
+            return unwrap(result[0]);
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            Object[] result = new Object[1];
+            update(key, old -> {
+                Object val = old;
+                if (old != NOT_FOUND && old != null) {
+                    V computed = remappingFunction.apply(key, unwrap(old));
+                    val = computed != null ? computed : NOT_FOUND;
+                }
+                result[0] = val;
+                return val;
+            });
+            return unwrap(result[0]);
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            Object[] result = new Object[1];
+            update(key, old -> {
+                V computed = remappingFunction.apply(key, unwrap(old));
+                Object val = computed != null ? computed : NOT_FOUND;
+                result[0] = val;
+                return val;
+            });
+            return unwrap(result[0]);
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            Object[] result = new Object[1];
+            update(key, old -> {
+                V merged = old == NOT_FOUND || old == null ? value : remappingFunction.apply(unwrap(old), value);
+                Object val = merged != null ? merged : NOT_FOUND;
+                result[0] = val;
+                return val;
+            });
+            return unwrap(result[0]);
+        }
+    }
+
+    /**
+     * An immutable version of the map. Writes return a new Snapshot sharing all untouched nodes with this one.
+     */
+    private static final class Snapshot <K, V> extends AbstractMap<K, V> {
+        private final Node<K, V> root;
+        private final int size;
+        private Set<Entry<K, V>> entrySet;
+
+        Snapshot(Node<K, V> root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        Object find(Object key, int hash) {
+            return root == null ? NOT_FOUND : root.find(key, hash, 0);
+        }
+
+        Snapshot<K, V> with(K key, int hash, V value, boolean added) {
+            Node<K, V> newRoot = root == null ? new Leaf<>(hash, key, value) : root.put(new Leaf<>(hash, key, value), 0);
+            return newRoot == root ? this : new Snapshot<>(newRoot, added ? size + 1 : size);
+        }
+
+        Snapshot<K, V> without(Object key, int hash) {
+            if (root == null) {
+                return this;
+            }
+            Node<K, V> newRoot = root.remove(key, hash, 0);
+            if (newRoot == root) {
+                return this;
+            }
+            return newRoot == null ? emptySnapshot() : new Snapshot<>(newRoot, size - 1);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public V get(Object key) {
+            return unwrap(find(key, hash(key)));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key, hash(key)) != NOT_FOUND;
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            Object value = find(key, hash(key));
+            return value != NOT_FOUND ? unwrap(value) : defaultValue;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            if (root != null) {
+                root.forEach(action);
+            }
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Entry<K, V>>() {
+                    @NotNull
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return new LeafIterator<>(root);
+                    }
+
+                    @Override
+                    public boolean contains(Object o) {
+                        if (!(o instanceof Entry)) {
+                            return false;
+                        }
+                        Entry<?, ?> entry = (Entry<?, ?>) o;
+                        Object value = find(entry.getKey(), hash(entry.getKey()));
+                        return value != NOT_FOUND && Objects.equals(value, entry.getValue());
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+    }
+
+    private static abstract class Node <K, V> {
+        /**
+         * @return The value for the key, or NOT_FOUND
+         */
+        abstract Object find(Object key, int hash, int shift);
+
+        /**
+         * @return The updated node, or this node if the key already held the same value
+         */
+        abstract Node<K, V> put(Leaf<K, V> leaf, int shift);
+
+        /**
+         * @return The updated node, this node if the key was not present, or null if the node is now empty
+         */
+        abstract Node<K, V> remove(Object key, int hash, int shift);
+
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+
+        /**
+         * Joins two nodes with different hashes under as many branches as it takes for their hashes to differ.
+         */
+        static <K, V> Node<K, V> join(Node<K, V> a, int hashA, Node<K, V> b, int hashB, int shift) {
+            int idxA = (hashA >>> shift) & 31;
+            int idxB = (hashB >>> shift) & 31;
+            if (idxA == idxB) {
+                return new Branch<>(1 << idxA, array(join(a, hashA, b, hashB, shift + 5)));
+            }
+            return new Branch<>((1 << idxA) | (1 << idxB), idxA < idxB ? array(a, b) : array(b, a));
+        }
+    }
+
+    private static final class Leaf <K, V> extends Node<K, V> implements Map.Entry<K, V> {
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            return this.hash == hash && Objects.equals(this.key, key) ? value : NOT_FOUND;
+        }
+
+        @Override
+        Node<K, V> put(Leaf<K, V> leaf, int shift) {
+            if (leaf.hash != hash) {
+                return join(this, hash, leaf, leaf.hash, shift);
+            }
+            if (Objects.equals(key, leaf.key)) {
+                return value == leaf.value ? this : leaf;
+            }
+            return new Collision<>(hash, array(this, leaf));
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            return this.hash == hash && Objects.equals(this.key, key) ? null : this;
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            action.accept(key, value);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Keys whose full hashes are equal, which no amount of branching can separate.
+     */
+    private static final class Collision <K, V> extends Node<K, V> {
+        private final int hash;
+        private final Leaf<K, V>[] leaves;
+
+        Collision(int hash, Leaf<K, V>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (Objects.equals(leaves[i].key, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+            int i = indexOf(key);
+            return i != -1 ? leaves[i].value : NOT_FOUND;
+        }
+
+        @Override
+        Node<K, V> put(Leaf<K, V> leaf, int shift) {
+            if (leaf.hash != hash) {
+                return join(this, hash, leaf, leaf.hash, shift);
+            }
+            int i = indexOf(leaf.key);
+            if (i != -1 && leaves[i].value == leaf.value) {
+                return this;
+            }
+            Leaf<K, V>[] newLeaves = Arrays.copyOf(leaves, i != -1 ? leaves.length : leaves.length + 1);
+            newLeaves[i != -1 ? i : leaves.length] = leaf;
+            return new Collision<>(hash, newLeaves);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            int i = hash == this.hash ? indexOf(key) : -1;
+            if (i == -1) {
+                return this;
+            }
+            if (leaves.length == 2) {
+                return leaves[1 - i];
+            }
+            Leaf<K, V>[] newLeaves = Arrays.copyOf(leaves, leaves.length - 1);
+            System.arraycopy(leaves, i + 1, newLeaves, i, leaves.length - i - 1);
+            return new Collision<>(hash, newLeaves);
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Leaf<K, V> leaf : leaves) {
+                action.accept(leaf.key, leaf.value);
+            }
+        }
+    }
+
+    /**
+     * Up to 32 children, keyed by the next 5 bits of the hash, stored densely with a bitmap of which are present.
+     */
+    private static final class Branch <K, V> extends Node<K, V> {
+        private final int bitmap;
+        private final Node<K, V>[] children;
+
+        Branch(int bitmap, Node<K, V>[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            return children[Integer.bitCount(bitmap & (bit - 1))].find(key, hash, shift + 5);
+        }
+
+        @Override
+        Node<K, V> put(Leaf<K, V> leaf, int shift) {
+            int bit = 1 << ((leaf.hash >>> shift) & 31);
+            int pos = Integer.bitCount(bitmap & (bit - 1));
+            if ((bitmap & bit) == 0) {
+                Node<K, V>[] newChildren = Arrays.copyOf(children, children.length + 1);
+                System.arraycopy(children, pos, newChildren, pos + 1, children.length - pos);
+                newChildren[pos] = leaf;
+                return new Branch<>(bitmap | bit, newChildren);
+            }
+            Node<K, V> child = children[pos];
+            Node<K, V> newChild = child.put(leaf, shift + 5);
+            if (newChild == child) {
+                return this;
+            }
+            Node<K, V>[] newChildren = children.clone();
+            newChildren[pos] = newChild;
+            return new Branch<>(bitmap, newChildren);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int pos = Integer.bitCount(bitmap & (bit - 1));
+            Node<K, V> child = children[pos];
+            Node<K, V> newChild = child.remove(key, hash, shift + 5);
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild != null) {
+                if (children.length == 1 && !(newChild instanceof Branch)) {
+                    // Pull a lone leaf up, so branches never hold a single leaf
+                    return newChild;
+                }
+                Node<K, V>[] newChildren = children.clone();
+                newChildren[pos] = newChild;
+                return new Branch<>(bitmap, newChildren);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2 && !(children[1 - pos] instanceof Branch)) {
+                return children[1 - pos];
+            }
+            Node<K, V>[] newChildren = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(children, pos + 1, newChildren, pos, children.length - pos - 1);
+            return new Branch<>(bitmap & ~bit, newChildren);
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Node<K, V> child : children) {
+                child.forEach(action);
+            }
+        }
+    }
+
+    private static final class LeafIterator <K, V> implements Iterator<Entry<K, V>> {
+        // Branch depth is bounded by the 32 bit hash, 7 levels of 5 bits, plus a collision node
+        private final Object[][] stack = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Leaf<K, V> next;
+
+        LeafIterator(Node<K, V> root) {
+            if (root != null) {
+                push(root);
+                advance();
+            }
+        }
+
+        private void push(Node<K, V> node) {
+            if (node instanceof Leaf) {
+                next = (Leaf<K, V>) node;
+                return;
+            }
+            stack[++depth] = node instanceof Branch ? ((Branch<K, V>) node).children : ((Collision<K, V>) node).leaves;
+            positions[depth] = 0;
+        }
+
+        private void advance() {
+            while (next == null && depth >= 0) {
+                Object[] nodes = stack[depth];
+                if (positions[depth] == nodes.length) {
+                    stack[depth--] = null;
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                Node<K, V> node = (Node<K, V>) nodes[positions[depth]++];
+                push(node);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            return nextLeaf();
+        }
+
+        Leaf<K, V> nextLeaf() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf<K, V> leaf = next;
+            next = null;
+            advance();
+            return leaf;
+        }
+    }
+}
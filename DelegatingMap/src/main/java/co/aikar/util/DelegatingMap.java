@@ -100,6 +100,30 @@ public interface DelegatingMap <K, V> extends Map<K, V> {
         return delegate(false).entrySet();
     }
 
+    /**
+     * A key set view of the read only delegate, for callers that will not remove through it.
+     */
+    @NotNull
+    default Set<K> readKeySet() {
+        return delegate(true).keySet();
+    }
+
+    /**
+     * A values view of the read only delegate, for callers that will not remove through it.
+     */
+    @NotNull
+    default Collection<V> readValues() {
+        return delegate(true).values();
+    }
+
+    /**
+     * An entry set view of the read only delegate, for callers that will not remove or set values through it.
+     */
+    @NotNull
+    default Set<Entry<K, V>> readEntrySet() {
+        return delegate(true).entrySet();
+    }
+
     @Override
     default V getOrDefault(Object key, V defaultValue) {
         return delegate(true).getOrDefault(key, defaultValue);
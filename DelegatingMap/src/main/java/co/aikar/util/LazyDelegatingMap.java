@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A map that does not allocate its backing map until it is first written to, for maps that are usually empty
+ * or created speculatively.
+ *
+ * Until then, {@link #delegate(boolean) delegate(true)} serves reads from the shared {@link Collections#emptyMap()}.
+ * The key, value and entry views never allocate, and always look at the current backing map.
+ *
+ * When created with releaseWhenEmpty, the backing map is dropped again as soon as a removal leaves it empty,
+ * whether through remove, clear, compute and friends, or an iterator of the views. Reads never release it.
+ *
+ * Not thread safe, as with the backing maps it is meant for.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public class LazyDelegatingMap <K, V> implements DelegatingMap<K, V> {
+
+    private final Supplier<Map<K, V>> mapSupplier;
+    private final boolean releaseWhenEmpty;
+    private Map<K, V> map;
+    private Set<K> keySet;
+    private Collection<V> values;
+    private Set<Entry<K, V>> entrySet;
+
+    public LazyDelegatingMap() {
+        this(HashMap::new);
+    }
+
+    public LazyDelegatingMap(Supplier<Map<K, V>> mapSupplier) {
+        this(mapSupplier, false);
+    }
+
+    /**
+     * @param mapSupplier Creates the backing map on the first write
+     * @param releaseWhenEmpty Drop the backing map once it is empty again, going back to the shared empty map
+     */
+    public LazyDelegatingMap(Supplier<Map<K, V>> mapSupplier, boolean releaseWhenEmpty) {
+        this.mapSupplier = mapSupplier;
+        this.releaseWhenEmpty = releaseWhenEmpty;
+    }
+
+    /**
+     * @return Whether the backing map is currently allocated
+     */
+    public boolean isAllocated() {
+        return map != null;
+    }
+
+    @Override
+    public Map<K, V> delegate(boolean isReadOnly) {
+        if (isReadOnly) {
+            return map != null ? map : Collections.emptyMap();
+        }
+        if (map == null) {
+            map = mapSupplier.get();
+        }
+        return map;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (map == null) {
+            return null;
+        }
+        V removed = map.remove(key);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (map == null) {
+            return false;
+        }
+        boolean removed = map.remove(key, value);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        if (map != null) {
+            map.clear();
+            releaseIfEmpty();
+        }
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        if (map == null) {
+            return null;
+        }
+        V value = map.computeIfPresent(key, remappingFunction);
+        releaseIfEmpty();
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V value = delegate(false).compute(key, remappingFunction);
+        releaseIfEmpty();
+        return value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V merged = delegate(false).merge(key, value, remappingFunction);
+        releaseIfEmpty();
+        return merged;
+    }
+
+    @NotNull
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @NotNull
+                @Override
+                public Iterator<K> iterator() {
+                    return viewIterator(Map::keySet);
+                }
+
+                @Override
+                public int size() {
+                    return LazyDelegatingMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (!containsKey(o)) {
+                        return false;
+                    }
+                    LazyDelegatingMap.this.remove(o);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    LazyDelegatingMap.this.clear();
+                }
+            };
+        }
+        return keySet;
+    }
+
+    @NotNull
+    @Override
+    public Collection<V> values() {
+        if (values == null) {
+            values = new AbstractCollection<V>() {
+                @NotNull
+                @Override
+                public Iterator<V> iterator() {
+                    return viewIterator(Map::values);
+                }
+
+                @Override
+                public int size() {
+                    return LazyDelegatingMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    LazyDelegatingMap.this.clear();
+                }
+            };
+        }
+        return values;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @NotNull
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return viewIterator(Map::entrySet);
+                }
+
+                @Override
+                public int size() {
+                    return LazyDelegatingMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return map != null && map.entrySet().contains(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (map == null) {
+                        return false;
+                    }
+                    boolean removed = map.entrySet().remove(o);
+                    releaseIfEmpty();
+                    return removed;
+                }
+
+                @Override
+                public void clear() {
+                    LazyDelegatingMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @NotNull
+    @Override
+    public Set<K> readKeySet() {
+        return keySet();
+    }
+
+    @NotNull
+    @Override
+    public Collection<V> readValues() {
+        return values();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> readEntrySet() {
+        return entrySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || delegate(true).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate(true).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return delegate(true).toString();
+    }
+
+    /**
+     * Iterates a view of the current backing map, releasing it if removing through the iterator empties it.
+     * The iterator has nothing left to return at that point, so it never sees the released map again.
+     */
+    private <E> Iterator<E> viewIterator(Function<Map<K, V>, Collection<E>> view) {
+        if (map == null) {
+            return Collections.emptyIterator();
+        }
+        Iterator<E> it = view.apply(map).iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                releaseIfEmpty();
+            }
+        };
+    }
+
+    private void releaseIfEmpty() {
+        if (releaseWhenEmpty && map != null && map.isEmpty()) {
+            map = null;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread safe map guarding a non thread safe backing map with a {@link StampedLock}, for read heavy shared maps.
+ *
+ * Unlike {@link java.util.Collections#synchronizedMap(Map)}, readers do not serialize with each other.
+ * size and isEmpty read without locking and only take the read lock if a write happened during the read. All other
+ * reads through {@link #delegate(boolean) delegate(true)} take the read lock, as lookups call back into the keys'
+ * hashCode and equals. Everything through delegate(false) takes the write lock.
+ *
+ * Readers share the read lock, so the backing map must not change on reads. An access ordered LinkedHashMap
+ * relinks entries on get and is not supported.
+ *
+ * The lock is not reentrant, so functions passed to forEach, compute, merge and friends must not use this map.
+ * Iterators and the key, value and entry views iterate a copy taken under the read lock, and removing through them
+ * removes by key.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public class LockingMap <K, V> implements DelegatingMap<K, V> {
+
+    private final Map<K, V> map;
+    private final StampedLock lock = new StampedLock();
+    private final Map<K, V> readView = new ReadView();
+    private final Map<K, V> writeView = new WriteView();
+
+    public LockingMap() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * @param backingMap Map to guard, which must not be used directly afterwards
+     */
+    public LockingMap(Map<K, V> backingMap) {
+        this.map = backingMap;
+    }
+
+    @Override
+    public Map<K, V> delegate(boolean isReadOnly) {
+        return isReadOnly ? readView : writeView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || readLocked(map -> map.equals(o));
+    }
+
+    @Override
+    public int hashCode() {
+        return readLocked(Map::hashCode);
+    }
+
+    @Override
+    public String toString() {
+        return readLocked(Map::toString);
+    }
+
+    /**
+     * Reads without locking, for reads that only look at a field of the backing map and so cannot fail mid write.
+     */
+    private <R> R optimisticRead(Function<Map<K, V>, R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            R result = reader.apply(map);
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        return readLocked(reader);
+    }
+
+    private <R> R readLocked(Function<Map<K, V>, R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.apply(map);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R write(Function<Map<K, V>, R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.apply(map);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private class ReadView extends SnapshotViewMap<K, V> {
+
+        @Override
+        Collection<Entry<K, V>> snapshotEntries() {
+            return readLocked(map -> {
+                List<Entry<K, V>> entries = new ArrayList<>(map.size());
+                for (Entry<K, V> entry : map.entrySet()) {
+                    entries.add(new SimpleImmutableEntry<>(entry));
+                }
+                return entries;
+            });
+        }
+
+        @Override
+        public int size() {
+            return optimisticRead(Map::size);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return optimisticRead(Map::isEmpty);
+        }
+
+        @Override
+        public V get(Object key) {
+            return readLocked(map -> map.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return readLocked(map -> map.containsKey(key));
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            return readLocked(map -> map.getOrDefault(key, defaultValue));
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return readLocked(map -> map.containsValue(value));
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            readLocked(map -> {
+                map.forEach(action);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || readLocked(map -> map.equals(o));
+        }
+
+        @Override
+        public int hashCode() {
+            return readLocked(Map::hashCode);
+        }
+
+        @Override
+        public String toString() {
+            return readLocked(Map::toString);
+        }
+    }
+
+    private class WriteView extends ReadView {
+        @Override
+        void removeKey(Object key) {
+            remove(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return write(map -> map.put(key, value));
+        }
+
+        @Override
+        public V remove(Object key) {
+            return write(map -> map.remove(key));
+        }
+
+        @Override
+        public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+            write(map -> {
+                map.putAll(m);
+                return null;
+            });
+        }
+
+        @Override
+        public void clear() {
+            write(map -> {
+                map.clear();
+                return null;
+            });
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            write(map -> {
+                map.replaceAll(function);
+                return null;
+            });
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            return write(map -> map.putIfAbsent(key, value));
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            return write(map -> map.remove(key, value));
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            return write(map -> map.replace(key, oldValue, newValue));
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            return write(map -> map.replace(key, value));
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            return write(map -> map.computeIfAbsent(key, mappingFunction));
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            return write(map -> map.computeIfPresent(key, remappingFunction));
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            return write(map -> map.compute(key, remappingFunction));
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            return write(map -> map.merge(key, value, remappingFunction));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+
+/**
+ * Base for the delegates of thread safe maps, whose key, value and entry views iterate a snapshot of the entries
+ * rather than the map itself. Iterators never throw ConcurrentModificationException, and spliterators are sized from
+ * the same snapshot they traverse, so streams stay correct while the map is written to.
+ */
+abstract class SnapshotViewMap <K, V> extends AbstractMap<K, V> {
+
+    private Set<Entry<K, V>> entrySet;
+    private Set<K> keySet;
+    private Collection<V> values;
+
+    /**
+     * @return The current entries, which must not change afterwards
+     */
+    abstract Collection<Entry<K, V>> snapshotEntries();
+
+    /**
+     * Removes a key on behalf of the views' iterators, which are read only unless this is overridden.
+     */
+    void removeKey(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @NotNull
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return snapshotIterator(Function.identity());
+                }
+
+                @Override
+                public Spliterator<Entry<K, V>> spliterator() {
+                    return snapshotSpliterator(Function.identity(), Spliterator.DISTINCT);
+                }
+
+                @Override
+                public int size() {
+                    return SnapshotViewMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Entry<?, ?> entry = (Entry<?, ?>) o;
+                    V value = get(entry.getKey());
+                    return Objects.equals(value, entry.getValue()) && (value != null || containsKey(entry.getKey()));
+                }
+
+                @Override
+                public void clear() {
+                    SnapshotViewMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @NotNull
+    @Override
+    public Set<K> keySet() {
+        if (keySet == null) {
+            keySet = new AbstractSet<K>() {
+                @NotNull
+                @Override
+                public Iterator<K> iterator() {
+                    return snapshotIterator(Entry::getKey);
+                }
+
+                @Override
+                public Spliterator<K> spliterator() {
+                    return snapshotSpliterator(Entry::getKey, Spliterator.DISTINCT);
+                }
+
+                @Override
+                public int size() {
+                    return SnapshotViewMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public void clear() {
+                    SnapshotViewMap.this.clear();
+                }
+            };
+        }
+        return keySet;
+    }
+
+    @NotNull
+    @Override
+    public Collection<V> values() {
+        if (values == null) {
+            values = new AbstractCollection<V>() {
+                @NotNull
+                @Override
+                public Iterator<V> iterator() {
+                    return snapshotIterator(Entry::getValue);
+                }
+
+                @Override
+                public Spliterator<V> spliterator() {
+                    return snapshotSpliterator(Entry::getValue, 0);
+                }
+
+                @Override
+                public int size() {
+                    return SnapshotViewMap.this.size();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    SnapshotViewMap.this.clear();
+                }
+            };
+        }
+        return values;
+    }
+
+    private <T> Iterator<T> snapshotIterator(Function<Entry<K, V>, T> mapper) {
+        Iterator<Entry<K, V>> it = snapshotEntries().iterator();
+        return new Iterator<T>() {
+            private Entry<K, V> last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                last = it.next();
+                return mapper.apply(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                removeKey(last.getKey());
+                last = null;
+            }
+        };
+    }
+
+    private <T> Spliterator<T> snapshotSpliterator(Function<Entry<K, V>, T> mapper, int characteristics) {
+        Collection<Entry<K, V>> entries = snapshotEntries();
+        Iterator<Entry<K, V>> it = entries.iterator();
+        return Spliterators.spliterator(new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return mapper.apply(it.next());
+            }
+        }, entries.size(), characteristics);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CopyOnWriteMapTest {
+
+    /**
+     * Random writes against a HashMap, over keys whose hashes share prefixes and fully collide,
+     * so every node type of the trie is created, split and collapsed again.
+     */
+    @Test
+    public void matchesHashMap() {
+        Random random = new Random(1);
+        Map<Key, Integer> map = new CopyOnWriteMap<>();
+        Map<Key, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            int id = random.nextInt(400);
+            // Hashes only differ in their top bits, and every fourth key lands in one collision node
+            Key key = new Key(id, id % 4 == 0 ? 7 : (id % 64) << 26);
+            Integer value = random.nextInt(5);
+            switch (random.nextInt(9)) {
+                case 0:
+                case 1:
+                case 2:
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 3:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 4:
+                    assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                    break;
+                case 5:
+                    assertEquals(expected.merge(key, value, (a, b) -> a + b > 6 ? null : a + b),
+                            map.merge(key, value, (a, b) -> a + b > 6 ? null : a + b));
+                    break;
+                case 6:
+                    assertEquals(expected.computeIfPresent(key, (k, v) -> v == 0 ? null : v - 1),
+                            map.computeIfPresent(key, (k, v) -> v == 0 ? null : v - 1));
+                    break;
+                case 7:
+                    assertEquals(expected.remove(key, value), map.remove(key, value));
+                    break;
+                default:
+                    assertEquals(expected.replace(key, value), map.replace(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+            if (i % 1000 == 0) {
+                assertEquals(expected, map);
+                assertEquals(map, expected);
+                assertEquals(expected.hashCode(), map.hashCode());
+            }
+        }
+        for (Key key : new ArrayList<>(expected.keySet())) {
+            assertEquals(expected.remove(key), map.remove(key));
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void fullCollisions() {
+        Map<Key, Integer> map = new CopyOnWriteMap<>();
+        for (int i = 0; i < 20; i++) {
+            map.put(new Key(i, 42), i);
+        }
+        assertEquals(20, map.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) map.get(new Key(i, 42)));
+        }
+        assertNull(map.get(new Key(20, 42)));
+        for (int i = 0; i < 20; i += 2) {
+            assertEquals(i, (int) map.remove(new Key(i, 42)));
+        }
+        assertEquals(10, map.size());
+        assertFalse(map.containsKey(new Key(0, 42)));
+        assertTrue(map.containsKey(new Key(1, 42)));
+    }
+
+    @Test
+    public void nullKeysAndValues() {
+        Map<String, String> map = new CopyOnWriteMap<>();
+        assertNull(map.put(null, "a"));
+        assertNull(map.put("b", null));
+        assertEquals("a", map.get(null));
+        assertTrue(map.containsKey("b"));
+        assertEquals(2, map.size());
+        assertNull(map.putIfAbsent("b", "c"));
+        assertEquals("c", map.get("b"));
+        assertEquals("a", map.remove(null));
+        assertFalse(map.containsKey(null));
+    }
+
+    @Test
+    public void snapshotsDoNotChange() {
+        CopyOnWriteMap<Integer, Integer> map = new CopyOnWriteMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        Map<Integer, Integer> snapshot = map.snapshot();
+        Map<Integer, Integer> copy = new HashMap<>(snapshot);
+        for (int i = 0; i < 1000; i += 3) {
+            map.remove(i);
+            map.put(i + 1, -1);
+        }
+        map.put(5000, 5000);
+        assertEquals(copy, snapshot);
+        try {
+            snapshot.put(1, 1);
+            fail("snapshots are read only");
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void iteratorRemovesByKey() {
+        Map<Integer, Integer> map = new CopyOnWriteMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        for (Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, Integer> entry = it.next();
+            // The iterator is over the snapshot it started with, so writes do not disturb it
+            map.put(entry.getKey() + 1000, 0);
+            if (entry.getKey() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(150, map.size());
+        assertFalse(map.containsKey(0));
+        assertTrue(map.containsKey(1));
+    }
+
+    @Test
+    public void concurrentWritersAreNotLost() throws InterruptedException {
+        Map<Integer, Integer> map = new CopyOnWriteMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int base = t * 10000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    map.put(base + i, i);
+                    map.merge(-1, 1, Integer::sum);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8001, map.size());
+        assertEquals(8000, (int) map.get(-1));
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key(" + id + ")";
+        }
+    }
+}
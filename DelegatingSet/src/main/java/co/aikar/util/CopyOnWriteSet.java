@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+
+/**
+ * A thread safe set for read mostly data, backed by a {@link CopyOnWriteMap}.
+ *
+ * Reads go to an immutable snapshot fetched with a single volatile read, and writes swap in a new snapshot that
+ * shares all but O(log n) of its structure with the previous one. Iterators are over the snapshot at the time
+ * they were created.
+ *
+ * @param <T> Value Type
+ */
+public class CopyOnWriteSet <T> implements DelegatingSet<T> {
+
+    private final CopyOnWriteMap<T, Boolean> map = new CopyOnWriteMap<>();
+    private final Set<T> writeView = new WriteView();
+
+    public CopyOnWriteSet() {
+    }
+
+    public CopyOnWriteSet(Collection<? extends T> values) {
+        addAll(values);
+    }
+
+    /**
+     * @return An immutable snapshot of the current contents, which later writes will not affect
+     */
+    public Set<T> snapshot() {
+        return map.snapshot().keySet();
+    }
+
+    @Override
+    public Set<T> delegate(boolean isReadOnly) {
+        return isReadOnly ? snapshot() : writeView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || snapshot().equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return snapshot().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    private class WriteView extends AbstractSet<T> {
+        private final Map<T, Boolean> writeMap = map.delegate(false);
+
+        @NotNull
+        @Override
+        public Iterator<T> iterator() {
+            return writeMap.keySet().iterator();
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return snapshot().spliterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean add(T t) {
+            return writeMap.putIfAbsent(t, Boolean.TRUE) == null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return writeMap.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            writeMap.clear();
+        }
+    }
+}
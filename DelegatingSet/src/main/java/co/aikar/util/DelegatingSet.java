@@ -58,6 +58,14 @@ public interface DelegatingSet <T> extends Set<T> {
         return delegate(false).iterator();
     }
 
+    /**
+     * Iterates the read only delegate, for callers that will not remove through the iterator.
+     */
+    @NotNull
+    default Iterator<T> readIterator() {
+        return delegate(true).iterator();
+    }
+
     @NotNull
     @Override
     default Object[] toArray() {
@@ -107,7 +115,7 @@ public interface DelegatingSet <T> extends Set<T> {
 
     @Override
     default Spliterator<T> spliterator() {
-        return delegate(false).spliterator();
+        return delegate(true).spliterator();
     }
 
     @Override
@@ -117,12 +125,12 @@ public interface DelegatingSet <T> extends Set<T> {
 
     @Override
     default Stream<T> stream() {
-        return delegate(false).stream();
+        return delegate(true).stream();
     }
 
     @Override
     default Stream<T> parallelStream() {
-        return delegate(false).parallelStream();
+        return delegate(true).parallelStream();
     }
 
     @Override
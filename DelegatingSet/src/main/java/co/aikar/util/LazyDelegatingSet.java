@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A set that does not allocate its backing set until it is first written to, such as the buckets of a
+ * {@link java.util.Map} of sets where most keys end up empty.
+ *
+ * Until then, {@link #delegate(boolean) delegate(true)} serves reads from the shared {@link Collections#emptySet()},
+ * and iterator() does not allocate either.
+ *
+ * When created with releaseWhenEmpty, the backing set is dropped again as soon as a removal leaves it empty,
+ * whether through this set or its iterator. Reads never release it.
+ *
+ * Not thread safe, as with the backing sets it is meant for.
+ *
+ * @see LazyDelegatingMap
+ * @param <T> Value Type
+ */
+public class LazyDelegatingSet <T> implements DelegatingSet<T> {
+
+    private final Supplier<Set<T>> setSupplier;
+    private final boolean releaseWhenEmpty;
+    private Set<T> set;
+
+    public LazyDelegatingSet() {
+        this(HashSet::new);
+    }
+
+    public LazyDelegatingSet(Supplier<Set<T>> setSupplier) {
+        this(setSupplier, false);
+    }
+
+    /**
+     * @param setSupplier Creates the backing set on the first write
+     * @param releaseWhenEmpty Drop the backing set once it is empty again, going back to the shared empty set
+     */
+    public LazyDelegatingSet(Supplier<Set<T>> setSupplier, boolean releaseWhenEmpty) {
+        this.setSupplier = setSupplier;
+        this.releaseWhenEmpty = releaseWhenEmpty;
+    }
+
+    /**
+     * @return Whether the backing set is currently allocated
+     */
+    public boolean isAllocated() {
+        return set != null;
+    }
+
+    @Override
+    public Set<T> delegate(boolean isReadOnly) {
+        if (isReadOnly) {
+            return set != null ? set : Collections.emptySet();
+        }
+        if (set == null) {
+            set = setSupplier.get();
+        }
+        return set;
+    }
+
+    /**
+     * Iterates the current backing set, releasing it if removing through the iterator empties it.
+     * The iterator has nothing left to return at that point, so it never sees the released set again.
+     */
+    @NotNull
+    @Override
+    public Iterator<T> iterator() {
+        if (set == null) {
+            return Collections.emptyIterator();
+        }
+        Iterator<T> it = set.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                releaseIfEmpty();
+            }
+        };
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (set == null) {
+            return false;
+        }
+        boolean removed = set.remove(o);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean removeAll(@NotNull Collection<?> c) {
+        if (set == null) {
+            return false;
+        }
+        boolean removed = set.removeAll(c);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean retainAll(@NotNull Collection<?> c) {
+        if (set == null) {
+            return false;
+        }
+        boolean removed = set.retainAll(c);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        if (set == null) {
+            return false;
+        }
+        boolean removed = set.removeIf(filter);
+        releaseIfEmpty();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        if (set != null) {
+            set.clear();
+            releaseIfEmpty();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || delegate(true).equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate(true).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return delegate(true).toString();
+    }
+
+    private void releaseIfEmpty() {
+        if (releaseWhenEmpty && set != null && set.isEmpty()) {
+            set = null;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A thread safe set guarding a non thread safe backing set with a {@link StampedLock}, for read heavy shared sets.
+ *
+ * size and isEmpty read without locking and only take the read lock if a write happened during the read. All other
+ * reads through {@link #delegate(boolean) delegate(true)} take the read lock, as lookups call back into the values'
+ * hashCode and equals. Everything through delegate(false) takes the write lock.
+ * Readers share the read lock, so the backing set must not change on reads.
+ *
+ * The lock is not reentrant, so functions passed to forEach and removeIf must not use this set.
+ * Iterators iterate a copy taken under the read lock, and removing through them removes that value.
+ *
+ * @see LockingMap
+ * @param <T> Value Type
+ */
+public class LockingSet <T> implements DelegatingSet<T> {
+
+    private final Set<T> set;
+    private final StampedLock lock = new StampedLock();
+    private final Set<T> readView = new ReadView();
+    private final Set<T> writeView = new WriteView();
+
+    public LockingSet() {
+        this(new HashSet<>());
+    }
+
+    /**
+     * @param backingSet Set to guard, which must not be used directly afterwards
+     */
+    public LockingSet(Set<T> backingSet) {
+        this.set = backingSet;
+    }
+
+    @Override
+    public Set<T> delegate(boolean isReadOnly) {
+        return isReadOnly ? readView : writeView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || readLocked(set -> set.equals(o));
+    }
+
+    @Override
+    public int hashCode() {
+        return readLocked(Set::hashCode);
+    }
+
+    @Override
+    public String toString() {
+        return readLocked(Set::toString);
+    }
+
+    /**
+     * Reads without locking, for reads that only look at a field of the backing set and so cannot fail mid write.
+     */
+    private <R> R optimisticRead(Function<Set<T>, R> reader) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            R result = reader.apply(set);
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        return readLocked(reader);
+    }
+
+    private List<T> copy() {
+        return readLocked(ArrayList::new);
+    }
+
+    private <R> R readLocked(Function<Set<T>, R> reader) {
+        long stamp = lock.readLock();
+        try {
+            return reader.apply(set);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <R> R write(Function<Set<T>, R> writer) {
+        long stamp = lock.writeLock();
+        try {
+            return writer.apply(set);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private class ReadView extends AbstractSet<T> {
+
+        void removeValue(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @NotNull
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<T> it = copy().iterator();
+            return new Iterator<T>() {
+                private T last;
+                private boolean canRemove;
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    last = it.next();
+                    canRemove = true;
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    if (!canRemove) {
+                        throw new IllegalStateException();
+                    }
+                    removeValue(last);
+                    canRemove = false;
+                }
+            };
+        }
+
+        /**
+         * Splits a copy taken under the read lock, so its size always matches what it traverses.
+         */
+        @Override
+        public Spliterator<T> spliterator() {
+            return Spliterators.spliterator(copy(), Spliterator.DISTINCT);
+        }
+
+        @Override
+        public int size() {
+            return optimisticRead(Set::size);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return optimisticRead(Set::isEmpty);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return readLocked(set -> set.contains(o));
+        }
+
+        @Override
+        public boolean containsAll(@NotNull Collection<?> c) {
+            return readLocked(set -> set.containsAll(c));
+        }
+
+        @NotNull
+        @Override
+        public Object[] toArray() {
+            return readLocked(Set::toArray);
+        }
+
+        @NotNull
+        @Override
+        public <T1> T1[] toArray(@NotNull T1[] a) {
+            return readLocked(set -> set.toArray(a));
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action) {
+            readLocked(set -> {
+                set.forEach(action);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || readLocked(set -> set.equals(o));
+        }
+
+        @Override
+        public int hashCode() {
+            return readLocked(Set::hashCode);
+        }
+
+        @Override
+        public String toString() {
+            return readLocked(Set::toString);
+        }
+    }
+
+    private class WriteView extends ReadView {
+        @Override
+        void removeValue(Object o) {
+            remove(o);
+        }
+
+        @Override
+        public boolean add(T t) {
+            return write(set -> set.add(t));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return write(set -> set.remove(o));
+        }
+
+        @Override
+        public boolean addAll(@NotNull Collection<? extends T> c) {
+            return write(set -> set.addAll(c));
+        }
+
+        @Override
+        public boolean retainAll(@NotNull Collection<?> c) {
+            return write(set -> set.retainAll(c));
+        }
+
+        @Override
+        public boolean removeAll(@NotNull Collection<?> c) {
+            return write(set -> set.removeAll(c));
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super T> filter) {
+            return write(set -> set.removeIf(filter));
+        }
+
+        @Override
+        public void clear() {
+            write(set -> {
+                set.clear();
+                return null;
+            });
+        }
+    }
+}
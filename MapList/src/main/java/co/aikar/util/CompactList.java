@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list that stores up to {@link #INLINE_SIZE} values in fields, and only allocates an array once it grows past that.
+ *
+ * Intended as the bucket of a {@link MapList} where most keys hold one to a few values, such as
+ * {@code new MapList<>(CompactList::new)}, to avoid paying for an ArrayList and its array per key.
+ * Once a list has grown into an array it stays there, so it does not flip back and forth around the limit.
+ *
+ * @param <V> Value Type
+ */
+public class CompactList <V> extends AbstractList<V> implements RandomAccess {
+
+    public static final int INLINE_SIZE = 4;
+
+    private Object e0;
+    private Object e1;
+    private Object e2;
+    private Object e3;
+    private Object[] elements;
+    private int size;
+
+    public CompactList() {
+    }
+
+    public CompactList(Collection<? extends V> values) {
+        addAll(values);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V get(int index) {
+        checkIndex(index, size);
+        @SuppressWarnings("unchecked")
+        V value = (V) (elements != null ? elements[index] : getInline(index));
+        return value;
+    }
+
+    @Override
+    public V set(int index, V value) {
+        checkIndex(index, size);
+        V old = get(index);
+        if (elements != null) {
+            elements[index] = value;
+        } else {
+            setInline(index, value);
+        }
+        return old;
+    }
+
+    @Override
+    public void add(int index, V value) {
+        checkIndex(index, size + 1);
+        modCount++;
+        if (elements == null && size < INLINE_SIZE) {
+            for (int i = size; i > index; i--) {
+                setInline(i, getInline(i - 1));
+            }
+            setInline(index, value);
+            size++;
+            return;
+        }
+        if (elements == null) {
+            elements = new Object[INLINE_SIZE * 2];
+            for (int i = 0; i < size; i++) {
+                elements[i] = getInline(i);
+            }
+            e0 = e1 = e2 = e3 = null;
+        } else if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size + (size >> 1));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    @Override
+    public V remove(int index) {
+        checkIndex(index, size);
+        modCount++;
+        V old = get(index);
+        if (elements != null) {
+            System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+            elements[size - 1] = null;
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                setInline(i, getInline(i + 1));
+            }
+            setInline(size - 1, null);
+        }
+        size--;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        e0 = e1 = e2 = e3 = null;
+        elements = null;
+        size = 0;
+    }
+
+    private Object getInline(int index) {
+        switch (index) {
+            case 0: return e0;
+            case 1: return e1;
+            case 2: return e2;
+            default: return e3;
+        }
+    }
+
+    private void setInline(int index, Object value) {
+        switch (index) {
+            case 0: e0 = value; break;
+            case 1: e1 = value; break;
+            case 2: e2 = value; break;
+            default: e3 = value; break;
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
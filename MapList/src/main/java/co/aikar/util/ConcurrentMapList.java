@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * A thread safe {@link MapList}, for registries that are read far more often than they are written.
+ *
+ * Lists are {@link CopyOnWriteArrayList}s in a {@link ConcurrentHashMap}, so reads and iteration never lock.
+ * Writes through this class run inside the map's atomic compute methods, so a list is removed when it becomes
+ * empty without losing a concurrent {@link #add(Object, Object)} to the same key.
+ *
+ * Lists returned by {@link #get(Object)} may be written to directly, but those writes are not atomic with
+ * respect to the removal of an emptied list, so prefer the methods on this class.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public class ConcurrentMapList <K, V> extends MapList<K, V> {
+
+    private final ConcurrentMap<K, List<V>> backingMap;
+    private final Function<K, List<V>> listSupplier;
+
+    public ConcurrentMapList() {
+        this(new ConcurrentHashMap<>(), k -> new CopyOnWriteArrayList<>());
+    }
+
+    /**
+     * @param backingMap An empty map to store the lists in
+     * @param listSupplier Creates the list for a key, which must be thread safe
+     */
+    public ConcurrentMapList(ConcurrentMap<K, List<V>> backingMap, Function<K, List<V>> listSupplier) {
+        super(backingMap, listSupplier);
+        this.backingMap = backingMap;
+        this.listSupplier = listSupplier;
+    }
+
+    @Nullable
+    @Override
+    public List<V> add(K key, V value) {
+        backingMap.compute(key, (k, list) -> {
+            if (list == null) {
+                list = listSupplier.apply(k);
+            }
+            list.add(value);
+            return list;
+        });
+        return null;
+    }
+
+    @Override
+    public boolean addAll(K key, Collection<? extends V> values) {
+        if (values.isEmpty()) {
+            return false;
+        }
+        boolean[] added = {false};
+        backingMap.compute(key, (k, list) -> {
+            if (list == null) {
+                list = listSupplier.apply(k);
+            }
+            added[0] = list.addAll(values);
+            return list;
+        });
+        return added[0];
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        boolean[] removed = {false};
+        // Only looked up, so a key of another type simply matches nothing
+        @SuppressWarnings("unchecked")
+        K typedKey = (K) key;
+        backingMap.computeIfPresent(typedKey, (k, list) -> {
+            removed[0] = list.removeAll(Collections.singleton(value));
+            return list.isEmpty() ? null : list;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean removeAll(Collection<V> values) {
+        boolean[] removed = {false};
+        for (K key : backingMap.keySet()) {
+            backingMap.computeIfPresent(key, (k, list) -> {
+                if (list.removeAll(values)) {
+                    removed[0] = true;
+                }
+                return list.isEmpty() ? null : list;
+            });
+        }
+        return removed[0];
+    }
+}
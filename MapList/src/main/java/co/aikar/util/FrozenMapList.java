@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
+
+/**
+ * A read only, compact copy of a {@link MapList}, built with {@link MapList#freeze()}.
+ *
+ * Every value lives in one contiguous array grouped by key, in compressed sparse row form. Keys are found through
+ * an open addressing index that points at an offset range in that array, so {@link #get(Object)} and iteration
+ * read values sequentially instead of going through one list per key.
+ *
+ * Lists returned from this map are read only views of the value array, and every write throws
+ * {@link UnsupportedOperationException}. Instances never change, so they are safe to read from any number of threads.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public final class FrozenMapList <K, V> extends MapList<K, V> {
+
+    private final Csr<K, V> csr;
+
+    private FrozenMapList(Csr<K, V> csr) {
+        super(csr, k -> {
+            throw new UnsupportedOperationException();
+        });
+        this.csr = csr;
+    }
+
+    static <K, V> FrozenMapList<K, V> copyOf(Map<K, List<V>> backingMap) {
+        int keyCount = 0;
+        int valueCount = 0;
+        for (List<V> values : backingMap.values()) {
+            if (!values.isEmpty()) {
+                keyCount++;
+                valueCount += values.size();
+            }
+        }
+        Object[] keys = new Object[keyCount];
+        int[] offsets = new int[keyCount + 1];
+        Object[] values = new Object[valueCount];
+        int id = 0;
+        int pos = 0;
+        for (Map.Entry<K, List<V>> entry : backingMap.entrySet()) {
+            List<V> list = entry.getValue();
+            if (list.isEmpty()) {
+                continue;
+            }
+            for (V value : list) {
+                values[pos++] = value;
+            }
+            keys[id] = entry.getKey();
+            offsets[++id] = pos;
+        }
+
+        int[] index = new int[tableSizeFor(keyCount)];
+        int mask = index.length - 1;
+        for (int i = 0; i < keyCount; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = i + 1;
+        }
+        return new FrozenMapList<>(new Csr<>(keys, index, offsets, values));
+    }
+
+    /**
+     * @return This map, as it is already frozen
+     */
+    @Override
+    public FrozenMapList<K, V> freeze() {
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public List<V> get(Object key) {
+        List<V> values = csr.get(key);
+        return values != null ? values : Collections.emptyList();
+    }
+
+    @NotNull
+    @Override
+    public List<V> getOrEmpty(Object key) {
+        return get(key);
+    }
+
+    @Override
+    public boolean has(K key) {
+        return csr.find(key) != -1;
+    }
+
+    @Override
+    public int size(K key) {
+        int id = csr.find(key);
+        return id != -1 ? csr.offsets[id + 1] - csr.offsets[id] : 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (Object v : csr.values) {
+            if (Objects.equals(v, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public @NotNull List<V> allValues() {
+        @SuppressWarnings("unchecked")
+        List<V> values = (List<V>) Arrays.asList(csr.values);
+        return new ArrayList<>(values);
+    }
+
+    @Override
+    public void forEachEntry(ForEachEntry<K, V> action) {
+        int[] offsets = csr.offsets;
+        for (int id = 0; id < csr.keys.length; id++) {
+            K key = csr.keyAt(id);
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                action.accept(key, csr.valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void forEach(K key, ForEachEntry<K, V> action) {
+        int id = csr.find(key);
+        if (id == -1) {
+            return;
+        }
+        for (int i = csr.offsets[id]; i < csr.offsets[id + 1]; i++) {
+            action.accept(key, csr.valueAt(i));
+        }
+    }
+
+    /**
+     * SIZED, unlike {@link MapList#spliterator()}, as the number of values is known.
+     */
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new BucketSpliterator<>(new Cursor(csr.entrySet().spliterator()), csr.values.length);
+    }
+
+    @Nullable
+    @Override
+    public List<V> add(K key, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(K key, Collection<? extends V> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    @Override
+    public List<V> put(K key, List<V> value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends List<V>> m) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<V> remove(Object key) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<V> values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int size) {
+        int cap = 2;
+        while (cap < size * 2) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    private static final class Csr <K, V> extends AbstractMap<K, List<V>> {
+        private final Object[] keys;
+        private final int[] index;
+        private final int[] offsets;
+        private final Object[] values;
+
+        Csr(Object[] keys, int[] index, int[] offsets, Object[] values) {
+            this.keys = keys;
+            this.index = index;
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        @SuppressWarnings("unchecked")
+        K keyAt(int id) {
+            return (K) keys[id];
+        }
+
+        @SuppressWarnings("unchecked")
+        V valueAt(int i) {
+            return (V) values[i];
+        }
+
+        int find(Object key) {
+            int mask = index.length - 1;
+            int slot = hash(key) & mask;
+            int id;
+            while ((id = index[slot]) != 0) {
+                if (Objects.equals(keys[id - 1], key)) {
+                    return id - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) != -1;
+        }
+
+        @Override
+        public List<V> get(Object key) {
+            int id = find(key);
+            return id != -1 ? new Slice(offsets[id], offsets[id + 1]) : null;
+        }
+
+        @NotNull
+        @Override
+        public Set<Map.Entry<K, List<V>>> entrySet() {
+            return new AbstractSet<Map.Entry<K, List<V>>>() {
+                @Override
+                public Iterator<Map.Entry<K, List<V>>> iterator() {
+                    return new Iterator<Map.Entry<K, List<V>>>() {
+                        private int id = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return id < keys.length;
+                        }
+
+                        @Override
+                        public Map.Entry<K, List<V>> next() {
+                            if (id >= keys.length) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<K, List<V>> entry = new SimpleImmutableEntry<>(keyAt(id), new Slice(offsets[id], offsets[id + 1]));
+                            id++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+
+        private final class Slice extends AbstractList<V> implements RandomAccess {
+            private final int from;
+            private final int to;
+
+            Slice(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            public V get(int index) {
+                if (index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+                }
+                return valueAt(from + index);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        }
+    }
+}
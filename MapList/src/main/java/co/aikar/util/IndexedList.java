@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * A list that indexes the positions of its values, so contains and removing a value are O(1) amortized rather than
+ * a scan and a shift.
+ *
+ * Intended as the bucket of a {@link MapList} with large buckets that values are frequently removed from by value,
+ * such as subscriber lists, see {@link MapList#indexed(boolean)}.
+ *
+ * By default removal moves the last value into the removed slot, so the order of values is not preserved.
+ * When created with preserveOrder, removed slots are marked and compacted later instead, which keeps insertion order.
+ * Iterating skips marked slots, and index based access such as {@link #get(int)} finds the slot for an index through
+ * a Fenwick tree of the live slots in O(log n), so reads never change the list. Marked slots are only compacted by
+ * writes, once they outnumber the live values.
+ *
+ * @param <V> Value Type
+ */
+public class IndexedList <V> extends AbstractList<V> implements RandomAccess {
+
+    private static final Object TOMBSTONE = new Object();
+    private static final int MIN_COMPACT = 16;
+
+    private final boolean preserveOrder;
+    private final Map<Object, Positions> index = new HashMap<>();
+    private Object[] elements = new Object[4];
+    private int end;
+    private int size;
+    /**
+     * Fenwick tree counting live slots, 1 based. Only kept while there are marked slots.
+     */
+    private int[] live;
+
+    public IndexedList() {
+        this(false);
+    }
+
+    /**
+     * @param preserveOrder Keep values in insertion order, compacting removed slots later instead of swapping
+     */
+    public IndexedList(boolean preserveOrder) {
+        this.preserveOrder = preserveOrder;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return index.containsKey(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        Positions positions = index.get(o);
+        if (positions == null) {
+            return -1;
+        }
+        return indexOfSlot(positions.min());
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        Positions positions = index.get(o);
+        if (positions == null) {
+            return -1;
+        }
+        return indexOfSlot(positions.max());
+    }
+
+    @Override
+    public V get(int i) {
+        checkIndex(i, size);
+        return elementAt(slotOf(i));
+    }
+
+    @Override
+    public V set(int i, V value) {
+        checkIndex(i, size);
+        int pos = slotOf(i);
+        V old = elementAt(pos);
+        unindex(old, pos);
+        elements[pos] = value;
+        index.computeIfAbsent(value, v -> new Positions()).add(pos);
+        return old;
+    }
+
+    @Override
+    public boolean add(V value) {
+        if (end == elements.length) {
+            compactIfSparse();
+        }
+        if (end == elements.length) {
+            elements = Arrays.copyOf(elements, end + (end >> 1) + 1);
+            if (live != null) {
+                buildLive();
+            }
+        }
+        index.computeIfAbsent(value, v -> new Positions()).add(end);
+        if (live != null) {
+            updateLive(end, 1);
+        }
+        elements[end++] = value;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Inserting anywhere but the end shifts and reindexes the list.
+     */
+    @Override
+    public void add(int i, V value) {
+        checkIndex(i, size + 1);
+        if (i == size) {
+            add(value);
+            return;
+        }
+        compact();
+        if (end == elements.length) {
+            elements = Arrays.copyOf(elements, end + (end >> 1) + 1);
+        }
+        System.arraycopy(elements, i, elements, i + 1, end - i);
+        elements[i] = value;
+        end++;
+        size++;
+        modCount++;
+        reindex();
+    }
+
+    @Override
+    public V remove(int i) {
+        checkIndex(i, size);
+        int pos = slotOf(i);
+        V old = elementAt(pos);
+        unindex(old, pos);
+        removeAt(pos);
+        compactIfSparse();
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Positions positions = index.get(o);
+        if (positions == null) {
+            return false;
+        }
+        int pos = preserveOrder ? positions.min() : positions.max();
+        unindex(o, pos);
+        removeAt(pos);
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Removes every occurrence of the values, proportional to the number of occurrences rather than the list size.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Set<?> values = c instanceof Set ? (Set<?>) c : new HashSet<>(c);
+        boolean removed = false;
+        for (Object o : values) {
+            Positions positions = index.remove(o);
+            if (positions == null) {
+                continue;
+            }
+            removed = true;
+            int[] pos = Arrays.copyOf(positions.pos, positions.count);
+            // Highest first, so a swap never moves another occurrence of this value
+            Arrays.sort(pos);
+            for (int i = pos.length - 1; i >= 0; i--) {
+                removeAt(pos[i]);
+            }
+        }
+        compactIfSparse();
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, end, null);
+        index.clear();
+        live = null;
+        end = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int cursor;
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                while (cursor < end && elements[cursor] == TOMBSTONE) {
+                    cursor++;
+                }
+                return cursor < end;
+            }
+
+            @Override
+            public V next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor++;
+                return elementAt(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                unindex(elements[last], last);
+                removeAt(last);
+                if (!preserveOrder) {
+                    // The last value was swapped into this slot, so visit it next
+                    cursor = last;
+                }
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    private void removeAt(int pos) {
+        modCount++;
+        size--;
+        if (preserveOrder) {
+            elements[pos] = TOMBSTONE;
+            if (live == null) {
+                buildLive();
+            } else {
+                updateLive(pos, -1);
+            }
+            return;
+        }
+        int lastPos = --end;
+        if (pos != lastPos) {
+            Object moved = elements[lastPos];
+            elements[pos] = moved;
+            index.get(moved).replace(lastPos, pos);
+        }
+        elements[lastPos] = null;
+    }
+
+    private void unindex(Object value, int pos) {
+        Positions positions = index.get(value);
+        positions.remove(pos);
+        if (positions.count == 0) {
+            index.remove(value);
+        }
+    }
+
+    private void compactIfSparse() {
+        int tombstones = end - size;
+        if (tombstones > MIN_COMPACT && tombstones > size) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        if (end == size) {
+            return;
+        }
+        int live = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != TOMBSTONE) {
+                elements[live++] = elements[i];
+            }
+        }
+        Arrays.fill(elements, live, end, null);
+        end = live;
+        this.live = null;
+        modCount++;
+        reindex();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V elementAt(int pos) {
+        return (V) elements[pos];
+    }
+
+    /**
+     * @return The slot holding the value at this index
+     */
+    private int slotOf(int i) {
+        if (live == null) {
+            return i;
+        }
+        // Descend the tree for the first slot with i + 1 live slots up to and including it
+        int pos = 0;
+        int remaining = i + 1;
+        for (int step = Integer.highestOneBit(elements.length); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= elements.length && live[next] < remaining) {
+                pos = next;
+                remaining -= live[next];
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * @return The index of the value in this slot, the number of live slots before it
+     */
+    private int indexOfSlot(int pos) {
+        if (live == null) {
+            return pos;
+        }
+        int count = 0;
+        for (int i = pos; i > 0; i -= i & -i) {
+            count += live[i];
+        }
+        return count;
+    }
+
+    private void updateLive(int pos, int delta) {
+        for (int i = pos + 1; i <= elements.length; i += i & -i) {
+            live[i] += delta;
+        }
+    }
+
+    private void buildLive() {
+        int[] tree = new int[elements.length + 1];
+        for (int i = 1; i <= elements.length; i++) {
+            if (i <= end && elements[i - 1] != TOMBSTONE) {
+                tree[i]++;
+            }
+            int parent = i + (i & -i);
+            if (parent <= elements.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        live = tree;
+    }
+
+    private void reindex() {
+        index.clear();
+        for (int i = 0; i < end; i++) {
+            index.computeIfAbsent(elements[i], v -> new Positions()).add(i);
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static final class Positions {
+        private int[] pos = new int[1];
+        private int count;
+
+        void add(int p) {
+            if (count == pos.length) {
+                pos = Arrays.copyOf(pos, count << 1);
+            }
+            pos[count++] = p;
+        }
+
+        void remove(int p) {
+            for (int i = 0; i < count; i++) {
+                if (pos[i] == p) {
+                    System.arraycopy(pos, i + 1, pos, i, count - i - 1);
+                    count--;
+                    return;
+                }
+            }
+        }
+
+        void replace(int from, int to) {
+            for (int i = 0; i < count; i++) {
+                if (pos[i] == from) {
+                    pos[i] = to;
+                    return;
+                }
+            }
+        }
+
+        int min() {
+            int min = pos[0];
+            for (int i = 1; i < count; i++) {
+                min = Math.min(min, pos[i]);
+            }
+            return min;
+        }
+
+        int max() {
+            int max = pos[0];
+            for (int i = 1; i < count; i++) {
+                max = Math.max(max, pos[i]);
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * A map of keys to lists of primitive int values, such as adjacency lists of entity ids, with the same add, remove and forEach
+ * methods as {@link MapList} but not its Map interface.
+ *
+ * Each key stores its values in a growable int[], so values are not boxed and are read sequentially.
+ * {@link MapLongList} is the same class for long values, kept as a separate copy so neither boxes.
+ *
+ * @param <K> Key Type
+ */
+public class MapIntList <K> {
+
+    private final Map<K, Bucket> backingMap;
+
+    public MapIntList() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * @param mapSupplier Creates the empty map to store the values in
+     */
+    public MapIntList(Supplier<? extends Map<K, ?>> mapSupplier) {
+        this(mapSupplier.get());
+    }
+
+    /**
+     * @param backingMap An empty map to store the values in, such as a TreeMap to keep keys sorted
+     */
+    @SuppressWarnings("unchecked")
+    public MapIntList(Map<K, ?> backingMap) {
+        if (!backingMap.isEmpty()) {
+            throw new IllegalArgumentException("Backing map must be empty");
+        }
+        this.backingMap = (Map<K, Bucket>) backingMap;
+    }
+
+    public void add(K key, int value) {
+        backingMap.computeIfAbsent(key, k -> new Bucket()).add(value);
+    }
+
+    public void addAll(K key, int... values) {
+        if (values.length == 0) {
+            return;
+        }
+        Bucket bucket = backingMap.computeIfAbsent(key, k -> new Bucket());
+        for (int value : values) {
+            bucket.add(value);
+        }
+    }
+
+    public boolean has(K key) {
+        return backingMap.containsKey(key);
+    }
+
+    public boolean contains(K key, int value) {
+        Bucket bucket = backingMap.get(key);
+        return bucket != null && bucket.indexOf(value) != -1;
+    }
+
+    public int size(K key) {
+        Bucket bucket = backingMap.get(key);
+        return bucket != null ? bucket.size : 0;
+    }
+
+    /**
+     * @return Number of keys
+     */
+    public int size() {
+        return backingMap.size();
+    }
+
+    public boolean isEmpty() {
+        return backingMap.isEmpty();
+    }
+
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(backingMap.keySet());
+    }
+
+    /**
+     * @return Copy of the values for this key
+     */
+    @NotNull
+    public int[] toArray(K key) {
+        Bucket bucket = backingMap.get(key);
+        return bucket != null ? Arrays.copyOf(bucket.values, bucket.size) : new int[0];
+    }
+
+    @NotNull
+    public IntStream stream(K key) {
+        Bucket bucket = backingMap.get(key);
+        return bucket != null ? Arrays.stream(bucket.values, 0, bucket.size) : IntStream.empty();
+    }
+
+    public void forEach(K key, IntConsumer action) {
+        Bucket bucket = backingMap.get(key);
+        if (bucket == null) {
+            return;
+        }
+        int[] values = bucket.values;
+        for (int i = 0; i < bucket.size; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    public interface ForEachEntry <K> {
+        void accept(K key, int val);
+    }
+
+    public void forEachEntry(ForEachEntry<K> action) {
+        backingMap.forEach((key, bucket) -> {
+            int[] values = bucket.values;
+            for (int i = 0; i < bucket.size; i++) {
+                action.accept(key, values[i]);
+            }
+        });
+    }
+
+    /**
+     * Removes every occurrence of the value from this key.
+     */
+    public boolean remove(K key, int value) {
+        Bucket bucket = backingMap.get(key);
+        if (bucket == null) {
+            return false;
+        }
+        boolean removed = bucket.removeAll(value);
+        if (bucket.size == 0) {
+            backingMap.remove(key);
+        }
+        return removed;
+    }
+
+    /**
+     * @return The values that were stored for this key
+     */
+    @NotNull
+    public int[] remove(K key) {
+        Bucket bucket = backingMap.remove(key);
+        return bucket != null ? Arrays.copyOf(bucket.values, bucket.size) : new int[0];
+    }
+
+    public void clear() {
+        backingMap.clear();
+    }
+
+    private static final class Bucket {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            values[size++] = value;
+        }
+
+        int indexOf(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        boolean removeAll(int value) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (values[i] != value) {
+                    values[kept++] = values[i];
+                }
+            }
+            boolean removed = kept != size;
+            size = kept;
+            return removed;
+        }
+    }
+}
@@ -27,9 +27,14 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MapList <K, V> implements DelegatingMap<K, List<V>>, Iterable<MapList.Entry<K, V>> {
     private final Map<K, List<V>> backingMap;
@@ -51,6 +56,73 @@ public class MapList <K, V> implements DelegatingMap<K, List<V>>, Iterable<MapLi
         this.backingMap = backingMap;
         this.listSupplier = listSupplier;
     }
+
+    /**
+     * Creates a MapList that keeps at most capacity values per key, overwriting the oldest values on add.
+     *
+     * @see RingBufferList
+     */
+    public static <K, V> MapList<K, V> bounded(int capacity) {
+        return new MapList<>(k -> new RingBufferList<>(capacity));
+    }
+
+    /**
+     * Creates a MapList that keeps at most capacity.applyAsInt(key) values per key, overwriting the oldest values on add.
+     *
+     * @see RingBufferList
+     */
+    public static <K, V> MapList<K, V> bounded(ToIntFunction<K> capacity) {
+        return new MapList<>(k -> new RingBufferList<>(capacity.applyAsInt(k)));
+    }
+
+    /**
+     * Creates a MapList where removing a value from a key is O(1) amortized instead of a scan of the list.
+     *
+     * @param preserveOrder Keep values in insertion order
+     * @see IndexedList
+     */
+    public static <K, V> MapList<K, V> indexed(boolean preserveOrder) {
+        return new MapList<>(k -> new IndexedList<>(preserveOrder));
+    }
+
+    /**
+     * Collects into a MapList, combining partial results with {@link #addAll(Object, Collection)} when run in parallel.
+     */
+    public static <T, K, V> Collector<T, ?, MapList<K, V>> toMapList(Function<? super T, ? extends K> keyFunction,
+                                                                     Function<? super T, ? extends V> valueFunction) {
+        return toMapList(keyFunction, valueFunction, MapList::new);
+    }
+
+    public static <T, K, V, M extends MapList<K, V>> Collector<T, ?, M> toMapList(Function<? super T, ? extends K> keyFunction,
+                                                                                  Function<? super T, ? extends V> valueFunction,
+                                                                                  Supplier<M> supplier) {
+        return Collector.of(supplier, (map, t) -> map.add(keyFunction.apply(t), valueFunction.apply(t)), (left, right) -> {
+            right.forEach(left::addAll);
+            return left;
+        }, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Collects into a single ConcurrentMapList that every thread of a parallel stream adds to directly,
+     * without building and combining partial results. The order of values in each list is not defined.
+     *
+     * Values are gathered into ArrayList buckets, which are only added to inside the backing map's compute and so
+     * never concurrently, and each key's values are copied into its thread safe list once at the end, as adding to
+     * a {@link java.util.concurrent.CopyOnWriteArrayList} one value at a time copies the whole list per add.
+     */
+    public static <T, K, V> Collector<T, ?, ConcurrentMapList<K, V>> toConcurrentMapList(Function<? super T, ? extends K> keyFunction,
+                                                                                         Function<? super T, ? extends V> valueFunction) {
+        return Collector.of(() -> new ConcurrentMapList<K, V>(new ConcurrentHashMap<>(), k -> new ArrayList<>()),
+                (map, t) -> map.add(keyFunction.apply(t), valueFunction.apply(t)), (left, right) -> {
+            right.forEach(left::addAll);
+            return left;
+        }, partial -> {
+            ConcurrentMapList<K, V> result = new ConcurrentMapList<>();
+            partial.forEach(result::addAll);
+            return result;
+        }, Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED);
+    }
+
     @Override
     public Map<K, List<V>> delegate(boolean isReadOnly) {
         return backingMap;
@@ -68,6 +140,17 @@ public class MapList <K, V> implements DelegatingMap<K, List<V>>, Iterable<MapLi
         return backingMap.computeIfAbsent((K) key, listSupplier);
     }
 
+    /**
+     * Read only lookup that never creates a bucket for a missing key.
+     *
+     * @return Unmodifiable view of the values for this key, or a shared empty list if there are none
+     */
+    @NotNull
+    public List<V> getOrEmpty(Object key) {
+        List<V> values = backingMap.get(key);
+        return values != null ? Collections.unmodifiableList(values) : Collections.emptyList();
+    }
+
     public boolean has(K key) {
         List<V> values = backingMap.get(key);
         return values != null && !values.isEmpty();
@@ -78,19 +161,38 @@ public class MapList <K, V> implements DelegatingMap<K, List<V>>, Iterable<MapLi
         return values != null ? values.size() : 0;
     }
 
+    /**
+     * Adds every value to the bucket for this key, creating it if needed.
+     *
+     * @return Whether any value was added
+     */
+    public boolean addAll(K key, Collection<? extends V> values) {
+        return !values.isEmpty() && get(key).addAll(values);
+    }
+
+    /**
+     * Adds every value to the existing values for this key, like {@link #addAll(Object, Collection)}.
+     *
+     * @return Always null, the previous values are not copied
+     */
     @Nullable
     @Override
     public List<V> put(K key, List<V> value) {
-        List<V> existing = get(key);
-        final List<V> prev = new ArrayList<>(existing);
-        existing.addAll(value);
-        return prev;
+        addAll(key, value);
+        return null;
     }
 
+    /**
+     * Removes every occurrence of the value from the bucket for this key. This is proportional to the number of
+     * occurrences rather than the bucket size with buckets from {@link #indexed(boolean)}.
+     */
     @Override
     public boolean remove(Object key, Object value) {
-        List<V> list = get(key);
-        boolean removed = list.removeIf(it -> Objects.equals(it, value));
+        List<V> list = backingMap.get(key);
+        if (list == null) {
+            return false;
+        }
+        boolean removed = list.removeAll(Collections.singleton(value));
         if (list.isEmpty()) {
             backingMap.remove(key);
         }
@@ -140,7 +242,7 @@ public class MapList <K, V> implements DelegatingMap<K, List<V>>, Iterable<MapLi
 
     @Override
     public void putAll(@NotNull Map<? extends K, ? extends List<V>> m) {
-        m.forEach((k, values) -> get(k).addAll(values));
+        m.forEach(this::addAll);
     }
 
     public @NotNull List<V> allValues() {
@@ -151,68 +253,100 @@ public class MapList <K, V> implements DelegatingMap<K, List<V>>, Iterable<MapLi
         return all;
     }
 
+    /**
+     * Builds a read only, compact copy of the current contents, for maps that are built once and then only read.
+     *
+     * @return FrozenMapList
+     */
+    public FrozenMapList<K, V> freeze() {
+        return FrozenMapList.copyOf(backingMap);
+    }
+
     public interface Entry <K, V> {
         K getKey();
         V getValue();
     }
 
+    private static final class ImmutableEntry <K, V> extends AbstractMap.SimpleImmutableEntry<K, V> implements Entry<K, V> {
+        ImmutableEntry(K key, V value) {
+            super(key, value);
+        }
+    }
+
+    /**
+     * Iterates every key and value, handing out a new immutable entry for each. Use {@link #cursor()} to scan
+     * without allocating per value.
+     */
     public Iterator<Entry<K, V>> iterator() {
-        return new EntryIterator();
+        return new Cursor(backingMap.entrySet().spliterator()).iterator();
+    }
+
+    public Stream<Entry<K, V>> stream() {
+        return stream(false);
+    }
+
+    public Stream<Entry<K, V>> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    public Stream<Entry<K, V>> parallelStream() {
+        return stream(true);
+    }
+
+    /**
+     * Flattens every key and value into a new immutable entry for each. Splits by keys, so a parallel stream hands
+     * whole lists to each task.
+     * Not SIZED, as only the number of keys is known without walking every list.
+     */
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new BucketSpliterator<>(new Cursor(backingMap.entrySet().spliterator()), -1);
+    }
+
+    /**
+     * Creates a cursor over every key and value. A scan does not allocate per value, only an iterator per list,
+     * and the cursor can be reused for further scans with {@link Cursor#reset()}.
+     *
+     * The cursor is invalidated by writes to this map, like an iterator.
+     */
+    public Cursor cursor() {
+        return new Cursor(backingMap.entrySet().spliterator());
     }
 
-    private class EntryIterator implements Iterator<Entry<K, V>> {
+    public final class Cursor extends BucketCursor<K, V, Entry<K, V>> implements Entry<K, V> {
 
-        private final Iterator<Map.Entry<K, List<V>>> iter;
-        private K curKey;
-        private Iterator<V> listIter;
-        private Entry<K, V> next;
+        Cursor(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets) {
+            super(buckets);
+        }
 
-        EntryIterator() {
-            this.iter = MapList.this.backingMap.entrySet().iterator();
-            this.listIter = null;
-            this.next = getNext();
+        /**
+         * Restarts the cursor from the first key.
+         */
+        public Cursor reset() {
+            reset(backingMap.entrySet().spliterator());
+            return this;
         }
 
-        private Entry<K, V> getNext() {
-            if (listIter == null || !listIter.hasNext()) {
-                if (!iter.hasNext()) {
-                    return null;
-                }
-                Map.Entry<K, List<V>> next = iter.next();
-                curKey = next.getKey();
-                listIter = next.getValue().iterator();
-            }
-            if (!listIter.hasNext()) {
-                return null;
-            }
-            V val = listIter.next();
-            return new Entry<K, V>() {
-                @Override
-                public K getKey() {
-                    return curKey;
-                }
-
-                @Override
-                public V getValue() {
-                    return val;
-                }
-            };
+        /**
+         * Moves to the next value.
+         *
+         * @return false once every value has been visited
+         */
+        public boolean next() {
+            return advance();
         }
 
         @Override
-        public boolean hasNext() {
-            return next != null;
+        Entry<K, V> entry(K key, V value) {
+            return new ImmutableEntry<>(key, value);
         }
 
         @Override
-        public Entry<K, V> next() {
-            Entry<K, V> prev = this.next;
-            next = getNext();
-            return prev;
+        Cursor create(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets) {
+            return new Cursor(buckets);
         }
     }
 
-
     @Override
     public void replaceAll(BiFunction<? super K, ? super List<V>, ? extends List<V>> function) {
         throw new UnsupportedOperationException();
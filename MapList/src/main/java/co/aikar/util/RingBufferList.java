@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.AbstractList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A list with a fixed capacity, where adding to a full list overwrites the oldest value.
+ *
+ * Intended as the bucket of a {@link MapList} that keeps a bounded recent history per key, see
+ * {@link MapList#bounded(int)}. Appends are O(1) and never shift, and the backing array grows up to the capacity
+ * as needed, so keys with few values do not pay for the full capacity.
+ *
+ * The list is ordered oldest to newest, use {@link #newestFirst()} to iterate the other way.
+ * Values can only be appended, removing from the middle shifts like an ArrayList.
+ *
+ * @param <V> Value Type
+ */
+public class RingBufferList <V> extends AbstractList<V> implements RandomAccess {
+
+    private static final int INITIAL_SIZE = 8;
+
+    private final int capacity;
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    public RingBufferList(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.elements = new Object[Math.min(capacity, INITIAL_SIZE)];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public V get(int index) {
+        checkIndex(index);
+        return elementAt(slot(index));
+    }
+
+    @Override
+    public V set(int index, V value) {
+        checkIndex(index);
+        int slot = slot(index);
+        V old = elementAt(slot);
+        elements[slot] = value;
+        return old;
+    }
+
+    /**
+     * Appends the value, overwriting the oldest value if the list is full. Only index == size() is supported.
+     */
+    @Override
+    public void add(int index, V value) {
+        if (index != size) {
+            throw new UnsupportedOperationException("Values can only be appended");
+        }
+        modCount++;
+        if (size == capacity) {
+            elements[head] = value;
+            head = (head + 1) % elements.length;
+            return;
+        }
+        if (size == elements.length) {
+            Object[] grown = new Object[(int) Math.min(capacity, (long) elements.length << 1)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = elements[slot(i)];
+            }
+            elements = grown;
+            head = 0;
+        }
+        elements[slot(size++)] = value;
+    }
+
+    @Override
+    public V remove(int index) {
+        checkIndex(index);
+        modCount++;
+        V old = get(index);
+        for (int i = index; i < size - 1; i++) {
+            elements[slot(i)] = elements[slot(i + 1)];
+        }
+        elements[slot(--size)] = null;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        for (int i = 0; i < size; i++) {
+            elements[slot(i)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * @return The most recently added value, or null if empty
+     */
+    public V newest() {
+        return size > 0 ? get(size - 1) : null;
+    }
+
+    /**
+     * @return The oldest value still held, or null if empty
+     */
+    public V oldest() {
+        return size > 0 ? get(0) : null;
+    }
+
+    public Iterator<V> descendingIterator() {
+        return new Iterator<V>() {
+            private int next = size - 1;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public V next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                return get(next--);
+            }
+        };
+    }
+
+    /**
+     * @return Iterable of the values from newest to oldest
+     */
+    public Iterable<V> newestFirst() {
+        return this::descendingIterator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V elementAt(int slot) {
+        return (V) elements[slot];
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < elements.length ? slot : slot - elements.length;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
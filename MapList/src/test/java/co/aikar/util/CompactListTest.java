@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactListTest {
+
+    @Test
+    public void matchesArrayList() {
+        Random random = new Random(1);
+        for (int round = 0; round < 500; round++) {
+            List<Integer> list = new CompactList<>();
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                int value = random.nextInt(8);
+                switch (random.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        int idx = random.nextInt(expected.size() + 1);
+                        list.add(idx, value);
+                        expected.add(idx, value);
+                        break;
+                    case 2:
+                        if (!expected.isEmpty()) {
+                            idx = random.nextInt(expected.size());
+                            assertEquals(expected.remove(idx), list.remove(idx));
+                        }
+                        break;
+                    default:
+                        list.removeIf(v -> v == value);
+                        expected.removeIf(v -> v == value);
+                }
+                assertEquals(expected, list);
+                assertEquals(expected.hashCode(), list.hashCode());
+            }
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void iteratorFailsFast() {
+        List<Integer> list = new CompactList<>();
+        list.add(1);
+        list.add(2);
+        Iterator<Integer> it = list.iterator();
+        it.next();
+        list.add(3);
+        it.next();
+    }
+
+    /**
+     * The point of the class: a bucket with a few values costs less than an ArrayList and its array.
+     */
+    @Test
+    public void smallerThanArrayList() {
+        for (int count = 1; count <= CompactList.INLINE_SIZE; count++) {
+            List<Integer> compact = new CompactList<>();
+            List<Integer> array = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                compact.add(i);
+                array.add(i);
+            }
+            long compactSize = GraphLayout.parseInstance(compact).totalSize();
+            long arraySize = GraphLayout.parseInstance(array).totalSize();
+            assertTrue(count + " values: " + compactSize + " >= " + arraySize, compactSize < arraySize);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedListTest {
+
+    /**
+     * Ordered lists must behave exactly like an ArrayList, including across removals that leave marked slots.
+     */
+    @Test
+    public void preserveOrderMatchesArrayList() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            List<Integer> list = new IndexedList<>(true);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                Integer value = random.nextInt(20);
+                switch (random.nextInt(8)) {
+                    case 0:
+                    case 1:
+                    case 2:
+                        list.add(value);
+                        expected.add(value);
+                        break;
+                    case 3:
+                        int idx = random.nextInt(expected.size() + 1);
+                        list.add(idx, value);
+                        expected.add(idx, value);
+                        break;
+                    case 4:
+                        assertEquals(expected.remove(value), list.remove(value));
+                        break;
+                    case 5:
+                        if (!expected.isEmpty()) {
+                            idx = random.nextInt(expected.size());
+                            assertEquals(expected.remove(idx), list.remove(idx));
+                        }
+                        break;
+                    case 6:
+                        if (!expected.isEmpty()) {
+                            idx = random.nextInt(expected.size());
+                            assertEquals(expected.set(idx, value), list.set(idx, value));
+                        }
+                        break;
+                    default:
+                        List<Integer> values = Arrays.asList(value, random.nextInt(20));
+                        assertEquals(expected.removeAll(values), list.removeAll(values));
+                }
+                assertEquals(expected, list);
+                assertEquals(expected.indexOf(value), list.indexOf(value));
+                assertEquals(expected.lastIndexOf(value), list.lastIndexOf(value));
+                assertEquals(expected.contains(value), list.contains(value));
+            }
+        }
+    }
+
+    /**
+     * Unordered lists may reorder on removal, but must keep the same values and a consistent index.
+     */
+    @Test
+    public void swapRemovalKeepsValuesAndIndex() {
+        Random random = new Random(2);
+        List<Integer> list = new IndexedList<>();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            Integer value = random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), list.remove(value));
+            } else {
+                list.add(value);
+                expected.add(value);
+            }
+            if (i % 100 == 0) {
+                List<Integer> actual = new ArrayList<>(list);
+                List<Integer> sorted = new ArrayList<>(expected);
+                Collections.sort(actual);
+                Collections.sort(sorted);
+                assertEquals(sorted, actual);
+                for (int v = 0; v < 50; v++) {
+                    int idx = list.indexOf(v);
+                    assertEquals(expected.contains(v), idx != -1);
+                    if (idx != -1) {
+                        assertEquals(v, (int) list.get(idx));
+                        assertEquals(v, (int) list.get(list.lastIndexOf(v)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void iteratorRemove() {
+        for (boolean preserveOrder : new boolean[] {true, false}) {
+            List<Integer> list = new IndexedList<>(preserveOrder);
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            for (Iterator<Integer> it = list.iterator(); it.hasNext(); ) {
+                if (it.next() % 2 == 0) {
+                    it.remove();
+                }
+            }
+            assertEquals(50, list.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i % 2 == 1, list.contains(i));
+            }
+            if (preserveOrder) {
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(i * 2 + 1, (int) list.get(i));
+                }
+            }
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void iteratorFailsFast() {
+        List<Integer> list = new IndexedList<>(true);
+        list.add(1);
+        list.add(2);
+        Iterator<Integer> it = list.iterator();
+        it.next();
+        list.remove((Integer) 1);
+        it.next();
+    }
+
+    @Test
+    public void indexedMapList() {
+        MapList<String, Integer> map = MapList.indexed(true);
+        map.add("a", 1);
+        map.add("a", 2);
+        map.add("a", 1);
+        map.add("a", 3);
+        assertTrue(map.remove("a", 1));
+        assertEquals("every occurrence is removed", Arrays.asList(2, 3), map.get("a"));
+        assertFalse(map.remove("a", 1));
+        assertTrue(map.remove("a", 2));
+        assertTrue(map.remove("a", 3));
+        assertFalse("empty buckets are removed", map.containsKey("a"));
+    }
+}
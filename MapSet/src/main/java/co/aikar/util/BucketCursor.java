@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Walks every value of a map of collections, the sets of a MapSet, shared by its cursors, iterators and
+ * spliterators.
+ *
+ * Each bucket is walked through its own iterator, so concurrent and copy-on-write buckets keep their usual
+ * iteration guarantees during a scan.
+ * Iterators and spliterators hand out a new immutable entry per value. Only a cursor read directly, through
+ * {@link #getKey()} and {@link #getValue()}, avoids allocating per value.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ * @param <E> Entry Type handed out by iterators and spliterators
+ */
+abstract class BucketCursor <K, V, E> {
+
+    private final Consumer<Map.Entry<K, ? extends Collection<V>>> nextBucket = this::nextBucket;
+    private Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets;
+    private K bucketKey;
+    private Iterator<V> iter;
+    private K key;
+    private V value;
+
+    BucketCursor(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets) {
+        this.buckets = buckets;
+    }
+
+    /**
+     * @return A new immutable entry holding the given key and value
+     */
+    abstract E entry(K key, V value);
+
+    /**
+     * @return A new cursor over the given buckets, for the half handed off by a split
+     */
+    abstract BucketCursor<K, V, E> create(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets);
+
+    void reset(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets) {
+        this.buckets = buckets;
+        this.bucketKey = null;
+        this.iter = null;
+        this.key = null;
+        this.value = null;
+    }
+
+    /**
+     * Finds the next bucket with a value left, without moving the current key and value.
+     */
+    boolean hasNext() {
+        while (true) {
+            if (iter != null) {
+                if (iter.hasNext()) {
+                    return true;
+                }
+                iter = null;
+            }
+            if (!buckets.tryAdvance(nextBucket)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next value.
+     *
+     * @return false once every value has been visited
+     */
+    boolean advance() {
+        if (!hasNext()) {
+            key = null;
+            value = null;
+            return false;
+        }
+        key = bucketKey;
+        value = iter.next();
+        return true;
+    }
+
+    /**
+     * @return A new immutable entry for the value the cursor is on
+     */
+    E current() {
+        return entry(key, value);
+    }
+
+    private void nextBucket(Map.Entry<K, ? extends Collection<V>> bucket) {
+        bucketKey = bucket.getKey();
+        iter = bucket.getValue().iterator();
+    }
+
+    Iterator<E> iterator() {
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return BucketCursor.this.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!advance()) {
+                    throw new NoSuchElementException();
+                }
+                return current();
+            }
+        };
+    }
+
+    Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> trySplitBuckets() {
+        return buckets.trySplit();
+    }
+
+    long estimateBuckets() {
+        return buckets.estimateSize();
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+}
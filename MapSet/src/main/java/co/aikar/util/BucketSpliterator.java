@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Flattens a map of collections, splitting by keys so a parallel stream hands whole buckets to each task.
+ *
+ * Values are read through one {@link BucketCursor} per split, and each is handed out as a new immutable entry.
+ * Only SIZED when created with the total number of values, as counting them would otherwise walk every bucket;
+ * the estimate is then the number of keys left.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ * @param <E> Entry Type
+ */
+final class BucketSpliterator <K, V, E> implements Spliterator<E> {
+
+    private final BucketCursor<K, V, E> cursor;
+    private long size;
+
+    /**
+     * @param size Total number of values, or -1 if not known
+     */
+    BucketSpliterator(BucketCursor<K, V, E> cursor, long size) {
+        this.cursor = cursor;
+        this.size = size;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (!cursor.advance()) {
+            return false;
+        }
+        if (size > 0) {
+            size--;
+        }
+        action.accept(cursor.current());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+        while (cursor.advance()) {
+            action.accept(cursor.current());
+        }
+        if (size > 0) {
+            size = 0;
+        }
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        // The current bucket stays with this half, only keys not started yet are handed off
+        Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> split = cursor.trySplitBuckets();
+        if (split == null) {
+            return null;
+        }
+        size = -1;
+        return new BucketSpliterator<>(cursor.create(split), -1);
+    }
+
+    @Override
+    public long estimateSize() {
+        return size >= 0 ? size : cursor.estimateBuckets();
+    }
+
+    @Override
+    public int characteristics() {
+        return size >= 0 ? Spliterator.NONNULL | Spliterator.SIZED : Spliterator.NONNULL;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A set that stores up to {@link #INLINE_SIZE} values in fields, and only upgrades to a {@link HashSet} once it
+ * grows past that.
+ *
+ * Intended as the bucket of a {@link MapSet} where most keys hold one to a few values, such as
+ * {@code new MapSet<>(CompactSet::new)}, to avoid paying for a HashSet and its HashMap per key.
+ * Small sets are searched linearly, so values should have a cheap equals. Once a set has upgraded it stays upgraded,
+ * so it does not flip back and forth around the limit. Iterators are fail fast in both modes, like HashSet's.
+ *
+ * @param <V> Value Type
+ */
+public class CompactSet <V> extends AbstractSet<V> {
+
+    public static final int INLINE_SIZE = 4;
+
+    private Object e0;
+    private Object e1;
+    private Object e2;
+    private Object e3;
+    private Set<V> overflow;
+    private int size;
+    /**
+     * Counts inline writes, so iterators can fail fast. Fits in the padding after size, so costs no memory.
+     */
+    private int modCount;
+
+    public CompactSet() {
+    }
+
+    public CompactSet(Collection<? extends V> values) {
+        addAll(values);
+    }
+
+    @Override
+    public int size() {
+        return overflow != null ? overflow.size() : size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return overflow != null ? overflow.contains(o) : indexOf(o) != -1;
+    }
+
+    @Override
+    public boolean add(V v) {
+        if (overflow != null) {
+            return overflow.add(v);
+        }
+        if (indexOf(v) != -1) {
+            return false;
+        }
+        modCount++;
+        if (size < INLINE_SIZE) {
+            set(size++, v);
+            return true;
+        }
+        Set<V> overflow = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            overflow.add(get(i));
+        }
+        overflow.add(v);
+        this.overflow = overflow;
+        e0 = e1 = e2 = e3 = null;
+        size = 0;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (overflow != null) {
+            return overflow.remove(o);
+        }
+        int idx = indexOf(o);
+        if (idx == -1) {
+            return false;
+        }
+        removeAt(idx);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        e0 = e1 = e2 = e3 = null;
+        overflow = null;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        if (overflow != null) {
+            return overflow.iterator();
+        }
+        return new Iterator<V>() {
+            private int next;
+            private boolean canRemove;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public V next() {
+                checkForComodification();
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return get(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                canRemove = false;
+                // The last value is moved into the removed slot, so visit that slot again
+                removeAt(--next);
+                expectedModCount = modCount;
+            }
+
+            private void checkForComodification() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    private int indexOf(Object o) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(get(i), o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int idx) {
+        modCount++;
+        set(idx, get(size - 1));
+        set(--size, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V get(int index) {
+        switch (index) {
+            case 0: return (V) e0;
+            case 1: return (V) e1;
+            case 2: return (V) e2;
+            default: return (V) e3;
+        }
+    }
+
+    private void set(int index, Object value) {
+        switch (index) {
+            case 0: e0 = value; break;
+            case 1: e1 = value; break;
+            case 2: e2 = value; break;
+            default: e3 = value; break;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A thread safe {@link MapSet}.
+ *
+ * Sets are {@link ConcurrentHashMap#newKeySet()}s in a {@link ConcurrentHashMap}, so reads and iteration never lock.
+ * Writes through this class run inside the map's atomic compute methods, so a set is removed when it becomes
+ * empty without losing a concurrent {@link #add(Object, Object)} to the same key.
+ *
+ * Sets returned by {@link #get(Object)} may be written to directly, but those writes are not atomic with
+ * respect to the removal of an emptied set, so prefer the methods on this class.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public class ConcurrentMapSet <K, V> extends MapSet<K, V> {
+
+    private final ConcurrentMap<K, Set<V>> backingMap;
+    private final Function<K, Set<V>> setSupplier;
+
+    public ConcurrentMapSet() {
+        this(new ConcurrentHashMap<>(), k -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * @param backingMap An empty map to store the sets in
+     * @param setSupplier Creates the set for a key, which must be thread safe
+     */
+    public ConcurrentMapSet(ConcurrentMap<K, Set<V>> backingMap, Function<K, Set<V>> setSupplier) {
+        super(backingMap, setSupplier);
+        this.backingMap = backingMap;
+        this.setSupplier = setSupplier;
+    }
+
+    @Nullable
+    @Override
+    public Set<V> add(K key, V value) {
+        backingMap.compute(key, (k, set) -> {
+            if (set == null) {
+                set = setSupplier.apply(k);
+            }
+            set.add(value);
+            return set;
+        });
+        return null;
+    }
+
+    @Override
+    public boolean addAll(K key, Collection<? extends V> values) {
+        if (values.isEmpty()) {
+            return false;
+        }
+        boolean[] added = {false};
+        backingMap.compute(key, (k, set) -> {
+            if (set == null) {
+                set = setSupplier.apply(k);
+            }
+            added[0] = set.addAll(values);
+            return set;
+        });
+        return added[0];
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        boolean[] removed = {false};
+        // Only looked up, so a key of another type simply matches nothing
+        @SuppressWarnings("unchecked")
+        K typedKey = (K) key;
+        backingMap.computeIfPresent(typedKey, (k, set) -> {
+            removed[0] = set.remove(value);
+            return set.isEmpty() ? null : set;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean removeAll(Collection<V> values) {
+        boolean[] removed = {false};
+        for (K key : backingMap.keySet()) {
+            backingMap.computeIfPresent(key, (k, set) -> {
+                if (set.removeAll(values)) {
+                    removed[0] = true;
+                }
+                return set.isEmpty() ? null : set;
+            });
+        }
+        return removed[0];
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A {@link MapSet} that also maintains a reverse index of value to keys.
+ *
+ * Looking up the keys of a value, {@link #containsValue(Object)} and removing values from every key with
+ * {@link #removeAll(Collection)} are proportional to the number of matching keys, instead of scanning every set.
+ * {@link #allValues()} is a live view of the index rather than a copy.
+ *
+ * The index is kept up to date through the sets returned by {@link #get(Object)} and through the key, value and
+ * entry views. A set returned by {@link #remove(Object)} is detached from the index.
+ *
+ * @param <K> Key Type
+ * @param <V> Value Type
+ */
+public class IndexedMapSet <K, V> extends MapSet<K, V> {
+
+    private final Map<V, Set<K>> index;
+    private final Function<K, Set<V>> setSupplier;
+
+    public IndexedMapSet() {
+        this((Supplier<Set<V>>) HashSet::new);
+    }
+    public IndexedMapSet(Supplier<Set<V>> setSupplier) {
+        this(new HashMap<>(), k -> setSupplier.get());
+    }
+    public IndexedMapSet(Function<K, Set<V>> setSupplier) {
+        this(new HashMap<>(), setSupplier);
+    }
+
+    /**
+     * @param backingMap An empty map to store the sets in
+     * @param setSupplier Creates the set for a key
+     */
+    public IndexedMapSet(Map<K, Set<V>> backingMap, Function<K, Set<V>> setSupplier) {
+        this(backingMap, setSupplier, new HashMap<>());
+    }
+
+    private IndexedMapSet(Map<K, Set<V>> backingMap, Function<K, Set<V>> setSupplier, Map<V, Set<K>> index) {
+        super(backingMap, k -> new IndexedSet<>(k, setSupplier.apply(k), index));
+        this.index = index;
+        this.setSupplier = setSupplier;
+    }
+
+    /**
+     * @return Read only view of every key that contains this value
+     */
+    @NotNull
+    public Set<K> keysOf(Object value) {
+        Set<K> keys = index.get(value);
+        return keys != null ? Collections.unmodifiableSet(keys) : Collections.emptySet();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return index.containsKey(value);
+    }
+
+    /**
+     * @return Live, read only view of every distinct value
+     */
+    @Override
+    public @NotNull Set<V> allValues() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    @Override
+    Set<V> copyOf(K key, Set<V> values) {
+        // Copies must not be indexed, and copying the unwrapped set keeps bulk operations fast
+        Set<V> copy = setSupplier.apply(key);
+        copy.addAll(indexed(values).values);
+        return copy;
+    }
+
+    @Override
+    public boolean removeAll(Collection<V> values) {
+        Map<K, Set<V>> backingMap = delegate(false);
+        boolean removed = false;
+        for (V value : values) {
+            Set<K> keys = index.remove(value);
+            if (keys == null) {
+                continue;
+            }
+            removed = true;
+            for (K key : keys) {
+                IndexedSet<K, V> set = indexed(backingMap.get(key));
+                set.values.remove(value);
+                if (set.values.isEmpty()) {
+                    backingMap.remove(key);
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public Set<V> remove(Object key) {
+        Set<V> set = delegate(false).remove(key);
+        if (set != null) {
+            indexed(set).detach();
+        }
+        return set;
+    }
+
+    @Override
+    public void clear() {
+        Map<K, Set<V>> backingMap = delegate(false);
+        for (Set<V> set : backingMap.values()) {
+            indexed(set).index = null;
+        }
+        backingMap.clear();
+        index.clear();
+    }
+
+    @NotNull
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new ViewIterator<>(Map.Entry::getKey);
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return IndexedMapSet.this.size();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Collection<Set<V>> values() {
+        return new AbstractCollection<Set<V>>() {
+            @Override
+            public Iterator<Set<V>> iterator() {
+                return new ViewIterator<>(Map.Entry::getValue);
+            }
+
+            @Override
+            public int size() {
+                return IndexedMapSet.this.size();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Set<Map.Entry<K, Set<V>>> entrySet() {
+        return new AbstractSet<Map.Entry<K, Set<V>>>() {
+            @Override
+            public Iterator<Map.Entry<K, Set<V>>> iterator() {
+                return new ViewIterator<>(e -> new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+            }
+
+            @Override
+            public int size() {
+                return IndexedMapSet.this.size();
+            }
+        };
+    }
+
+    private class ViewIterator <T> implements Iterator<T> {
+        private final Iterator<Map.Entry<K, Set<V>>> iter = delegate(false).entrySet().iterator();
+        private final Function<Map.Entry<K, Set<V>>, T> mapper;
+        private Map.Entry<K, Set<V>> last;
+
+        ViewIterator(Function<Map.Entry<K, Set<V>>, T> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iter.hasNext();
+        }
+
+        @Override
+        public T next() {
+            last = iter.next();
+            return mapper.apply(last);
+        }
+
+        @Override
+        public void remove() {
+            iter.remove();
+            indexed(last.getValue()).detach();
+        }
+    }
+
+    /**
+     * Every set in the backing map is an IndexedSet, as the set supplier is wrapped on creation.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, V> IndexedSet<K, V> indexed(Set<V> set) {
+        return (IndexedSet<K, V>) set;
+    }
+
+    private static class IndexedSet <K, V> extends AbstractSet<V> {
+        private final K key;
+        private final Set<V> values;
+        private Map<V, Set<K>> index;
+
+        IndexedSet(K key, Set<V> values, Map<V, Set<K>> index) {
+            this.key = key;
+            this.values = values;
+            this.index = index;
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return values.contains(o);
+        }
+
+        @Override
+        public boolean add(V v) {
+            if (!values.add(v)) {
+                return false;
+            }
+            if (index != null) {
+                index.computeIfAbsent(v, x -> new HashSet<>()).add(key);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!values.remove(o)) {
+                return false;
+            }
+            unindex(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            if (index != null) {
+                for (V v : values) {
+                    unindex(v);
+                }
+            }
+            values.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            Iterator<V> iter = values.iterator();
+            return new Iterator<V>() {
+                private V last;
+
+                @Override
+                public boolean hasNext() {
+                    return iter.hasNext();
+                }
+
+                @Override
+                public V next() {
+                    return last = iter.next();
+                }
+
+                @Override
+                public void remove() {
+                    iter.remove();
+                    unindex(last);
+                }
+            };
+        }
+
+        void detach() {
+            if (index != null) {
+                for (V v : values) {
+                    unindex(v);
+                }
+                index = null;
+            }
+        }
+
+        private void unindex(Object value) {
+            if (index == null) {
+                return;
+            }
+            Set<K> keys = index.get(value);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of non negative Integers stored as a bitset in a long[], for small, dense values such as ids or flags.
+ *
+ * Intended as the bucket of a {@link MapSet}, such as {@code new MapSet<K, Integer>(k -> new IntBitSet())}.
+ * Membership is a single bit test, and addAll, retainAll, removeAll and containsAll against another IntBitSet
+ * work a word at a time, which makes {@link MapSet#union(Iterable)} and friends cheap.
+ *
+ * Memory is proportional to the largest value, so this is a poor fit for large or sparse values.
+ */
+public class IntBitSet extends AbstractSet<Integer> {
+
+    private long[] words;
+    private int size;
+    private int modCount;
+
+    public IntBitSet() {
+        this.words = new long[1];
+    }
+
+    public IntBitSet(Collection<Integer> values) {
+        this();
+        addAll(values);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer && get((Integer) o);
+    }
+
+    public boolean get(int value) {
+        int word = value >>> 6;
+        return value >= 0 && word < words.length && (words[word] & (1L << value)) != 0;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return set(value);
+    }
+
+    public boolean set(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        int word = value >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length << 1));
+        }
+        long bit = 1L << value;
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        words[word] |= bit;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer && clear((Integer) o);
+    }
+
+    public boolean clear(int value) {
+        int word = value >>> 6;
+        if (value < 0 || word >= words.length) {
+            return false;
+        }
+        long bit = 1L << value;
+        if ((words[word] & bit) == 0) {
+            return false;
+        }
+        words[word] &= ~bit;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (!(c instanceof IntBitSet)) {
+            return super.containsAll(c);
+        }
+        long[] other = ((IntBitSet) c).words;
+        for (int i = 0; i < other.length; i++) {
+            long mine = i < words.length ? words[i] : 0;
+            if ((other[i] & ~mine) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (!(c instanceof IntBitSet)) {
+            return super.addAll(c);
+        }
+        long[] other = ((IntBitSet) c).words;
+        if (other.length > words.length) {
+            words = Arrays.copyOf(words, other.length);
+        }
+        for (int i = 0; i < other.length; i++) {
+            words[i] |= other[i];
+        }
+        return recount();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (!(c instanceof IntBitSet)) {
+            return super.retainAll(c);
+        }
+        long[] other = ((IntBitSet) c).words;
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= i < other.length ? other[i] : 0;
+        }
+        return recount();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (!(c instanceof IntBitSet)) {
+            return super.removeAll(c);
+        }
+        long[] other = ((IntBitSet) c).words;
+        for (int i = 0; i < Math.min(words.length, other.length); i++) {
+            words[i] &= ~other[i];
+        }
+        return recount();
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next = nextSetBit(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next != -1;
+            }
+
+            @Override
+            public Integer next() {
+                if (next == -1) {
+                    throw new NoSuchElementException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                last = next;
+                next = nextSetBit(next + 1);
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                IntBitSet.this.clear(last);
+                expectedModCount = modCount;
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * @return The first value greater than or equal to from, or -1 if there is none
+     */
+    public int nextSetBit(int from) {
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word >= words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    private boolean recount() {
+        int size = 0;
+        for (long word : words) {
+            size += Long.bitCount(word);
+        }
+        boolean changed = size != this.size;
+        this.size = size;
+        modCount++;
+        return changed;
+    }
+}
@@ -26,16 +26,21 @@ package co.aikar.util;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractMap;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.Entry<K, V>> {
 
@@ -58,6 +63,35 @@ public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.
         this.backingMap = backingMap;
         this.setSupplier = setSupplier;
     }
+    /**
+     * Collects into a MapSet, combining partial results with {@link #addAll(Object, Collection)} when run in parallel.
+     */
+    public static <T, K, V> Collector<T, ?, MapSet<K, V>> toMapSet(Function<? super T, ? extends K> keyFunction,
+                                                                   Function<? super T, ? extends V> valueFunction) {
+        return toMapSet(keyFunction, valueFunction, MapSet::new);
+    }
+
+    public static <T, K, V, M extends MapSet<K, V>> Collector<T, ?, M> toMapSet(Function<? super T, ? extends K> keyFunction,
+                                                                                Function<? super T, ? extends V> valueFunction,
+                                                                                Supplier<M> supplier) {
+        return Collector.of(supplier, (map, t) -> map.add(keyFunction.apply(t), valueFunction.apply(t)), (left, right) -> {
+            right.forEach(left::addAll);
+            return left;
+        }, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Collects into a single ConcurrentMapSet that every thread of a parallel stream adds to directly,
+     * without building and combining partial results. The order of values in each set is not defined.
+     */
+    public static <T, K, V> Collector<T, ?, ConcurrentMapSet<K, V>> toConcurrentMapSet(Function<? super T, ? extends K> keyFunction,
+                                                                                       Function<? super T, ? extends V> valueFunction) {
+        return Collector.of(ConcurrentMapSet::new, (map, t) -> map.add(keyFunction.apply(t), valueFunction.apply(t)), (left, right) -> {
+            right.forEach(left::addAll);
+            return left;
+        }, Collector.Characteristics.CONCURRENT, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
     @Override
     public Map<K, Set<V>> delegate(boolean isReadOnly) {
         return backingMap;
@@ -75,6 +109,17 @@ public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.
         return backingMap.computeIfAbsent((K) key, setSupplier);
     }
 
+    /**
+     * Read only lookup that never creates a bucket for a missing key.
+     *
+     * @return Unmodifiable view of the values for this key, or a shared empty set if there are none
+     */
+    @NotNull
+    public Set<V> getOrEmpty(Object key) {
+        Set<V> values = backingMap.get(key);
+        return values != null ? Collections.unmodifiableSet(values) : Collections.emptySet();
+    }
+
     public boolean has(K key) {
         Set<V> values = backingMap.get(key);
         return values != null && !values.isEmpty();
@@ -86,19 +131,34 @@ public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.
     }
 
 
+    /**
+     * Adds every value to the bucket for this key, creating it if needed.
+     *
+     * @return Whether any value was added
+     */
+    public boolean addAll(K key, Collection<? extends V> values) {
+        return !values.isEmpty() && get(key).addAll(values);
+    }
+
+    /**
+     * Adds every value to the existing values for this key, like {@link #addAll(Object, Collection)}.
+     *
+     * @return Always null, the previous values are not copied
+     */
     @Nullable
     @Override
     public Set<V> put(K key, Set<V> value) {
-        Set<V> existing = get(key);
-        final Set<V> prev = new HashSet<>(existing);
-        existing.addAll(value);
-        return prev;
+        addAll(key, value);
+        return null;
     }
 
     @Override
     public boolean remove(Object key, Object value) {
-        Set<V> set = get(key);
-        boolean removed = set.removeIf(it -> Objects.equals(it, value));
+        Set<V> set = backingMap.get(key);
+        if (set == null) {
+            return false;
+        }
+        boolean removed = set.remove(value);
         if (set.isEmpty()) {
             backingMap.remove(key);
         }
@@ -128,6 +188,83 @@ public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.
         return values;
     }
 
+    /**
+     * A non empty result is a new set created by the set supplier, so buckets such as {@link IntBitSet} or EnumSet
+     * combine a word at a time. An empty result is always the shared {@link Collections#emptySet()}, like
+     * {@link #getOrEmpty(Object)}, so there is no key needed to create one and nothing allocated.
+     *
+     * @return New set of every value held by any of the keys
+     */
+    @NotNull
+    public Set<V> union(Iterable<? extends K> keys) {
+        Set<V> result = null;
+        for (K key : keys) {
+            Set<V> values = backingMap.get(key);
+            if (values == null) {
+                continue;
+            }
+            if (result == null) {
+                result = copyOf(key, values);
+            } else {
+                result.addAll(values);
+            }
+        }
+        return nonEmpty(result);
+    }
+
+    /**
+     * @return New set of the values held by every one of the keys, or an empty set as for {@link #union(Iterable)}
+     */
+    @NotNull
+    public Set<V> intersection(Iterable<? extends K> keys) {
+        Set<V> result = null;
+        for (K key : keys) {
+            Set<V> values = backingMap.get(key);
+            if (values == null) {
+                return Collections.emptySet();
+            }
+            if (result == null) {
+                result = copyOf(key, values);
+            } else {
+                result.retainAll(values);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return nonEmpty(result);
+    }
+
+    /**
+     * @return New set of the values held by key that are not held by any of the excluded keys, or an empty set
+     * as for {@link #union(Iterable)}
+     */
+    @NotNull
+    public Set<V> andNot(K key, Iterable<? extends K> excluded) {
+        Set<V> values = backingMap.get(key);
+        if (values == null) {
+            return Collections.emptySet();
+        }
+        Set<V> result = copyOf(key, values);
+        for (K other : excluded) {
+            Set<V> otherValues = backingMap.get(other);
+            if (otherValues != null) {
+                result.removeAll(otherValues);
+            }
+        }
+        return nonEmpty(result);
+    }
+
+    private Set<V> nonEmpty(Set<V> result) {
+        return result != null && !result.isEmpty() ? result : Collections.emptySet();
+    }
+
+    Set<V> copyOf(K key, Set<V> values) {
+        Set<V> copy = setSupplier.apply(key);
+        copy.addAll(values);
+        return copy;
+    }
+
     public interface ForEachEntry<K, V>  {
         void accept(K key, V val);
     }
@@ -157,7 +294,7 @@ public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.
 
     @Override
     public void putAll(@NotNull Map<? extends K, ? extends Set<V>> m) {
-        m.forEach((k, values) -> get(k).addAll(values));
+        m.forEach(this::addAll);
     }
 
 
@@ -166,59 +303,83 @@ public class MapSet <K, V> implements DelegatingMap<K, Set<V>>, Iterable<MapSet.
         V getValue();
     }
 
+    private static final class ImmutableEntry <K, V> extends AbstractMap.SimpleImmutableEntry<K, V> implements Entry<K, V> {
+        ImmutableEntry(K key, V value) {
+            super(key, value);
+        }
+    }
+
+    /**
+     * Iterates every key and value, handing out a new immutable entry for each. Use {@link #cursor()} to scan
+     * without allocating per value.
+     */
     public Iterator<Entry<K, V>> iterator() {
-        return new EntryIterator();
+        return new Cursor(backingMap.entrySet().spliterator()).iterator();
     }
 
-    private class EntryIterator implements Iterator<Entry<K, V>> {
+    public Stream<Entry<K, V>> stream() {
+        return stream(false);
+    }
+
+    public Stream<Entry<K, V>> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    public Stream<Entry<K, V>> parallelStream() {
+        return stream(true);
+    }
+
+    /**
+     * Flattens every key and value into a new immutable entry for each. Splits by keys, so a parallel stream hands
+     * whole sets to each task.
+     * Not SIZED, as only the number of keys is known without walking every set.
+     */
+    @Override
+    public Spliterator<Entry<K, V>> spliterator() {
+        return new BucketSpliterator<>(new Cursor(backingMap.entrySet().spliterator()), -1);
+    }
+
+    /**
+     * Creates a cursor over every key and value. A scan does not allocate per value, only an iterator per set,
+     * and the cursor can be reused for further scans with {@link Cursor#reset()}.
+     *
+     * The cursor is invalidated by writes to this map, like an iterator.
+     */
+    public Cursor cursor() {
+        return new Cursor(backingMap.entrySet().spliterator());
+    }
 
-        private final Iterator<Map.Entry<K, Set<V>>> iter;
-        private K curKey;
-        private Iterator<V> setIter;
-        private Entry<K, V> next;
+    public final class Cursor extends BucketCursor<K, V, Entry<K, V>> implements Entry<K, V> {
 
-        EntryIterator() {
-            this.iter = MapSet.this.backingMap.entrySet().iterator();
-            this.setIter = null;
-            this.next = getNext();
+        Cursor(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets) {
+            super(buckets);
         }
 
-        private Entry<K, V> getNext() {
-            if (setIter == null || !setIter.hasNext()) {
-                if (!iter.hasNext()) {
-                    return null;
-                }
-                Map.Entry<K, Set<V>> next = iter.next();
-                curKey = next.getKey();
-                setIter = next.getValue().iterator();
-            }
-            if (!setIter.hasNext()) {
-                return null;
-            }
-            V val = setIter.next();
-            return new Entry<K, V>() {
-                @Override
-                public K getKey() {
-                    return curKey;
-                }
-
-                @Override
-                public V getValue() {
-                    return val;
-                }
-            };
+        /**
+         * Restarts the cursor from the first key.
+         */
+        public Cursor reset() {
+            reset(backingMap.entrySet().spliterator());
+            return this;
+        }
+
+        /**
+         * Moves to the next value.
+         *
+         * @return false once every value has been visited
+         */
+        public boolean next() {
+            return advance();
         }
 
         @Override
-        public boolean hasNext() {
-            return next != null;
+        Entry<K, V> entry(K key, V value) {
+            return new ImmutableEntry<>(key, value);
         }
 
         @Override
-        public Entry<K, V> next() {
-            Entry<K, V> prev = this.next;
-            next = getNext();
-            return prev;
+        Cursor create(Spliterator<? extends Map.Entry<K, ? extends Collection<V>>> buckets) {
+            return new Cursor(buckets);
         }
     }
 
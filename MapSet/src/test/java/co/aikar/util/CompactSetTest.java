@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompactSetTest {
+
+    @Test
+    public void matchesHashSet() {
+        Random random = new Random(1);
+        for (int round = 0; round < 500; round++) {
+            Set<Integer> set = new CompactSet<>();
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < 30; i++) {
+                int value = random.nextInt(round % 2 == 0 ? 6 : 12);
+                switch (random.nextInt(4)) {
+                    case 0:
+                    case 1:
+                        assertEquals(expected.add(value), set.add(value));
+                        break;
+                    case 2:
+                        assertEquals(expected.remove(value), set.remove(value));
+                        break;
+                    default:
+                        set.removeIf(v -> v % 3 == value % 3);
+                        expected.removeIf(v -> v % 3 == value % 3);
+                }
+                assertEquals(expected, set);
+                assertEquals(set, expected);
+            }
+        }
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void inlineIteratorFailsFast() {
+        Set<Integer> set = new CompactSet<>();
+        set.add(1);
+        set.add(2);
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        set.remove(2);
+        it.next();
+    }
+
+    @Test(expected = ConcurrentModificationException.class)
+    public void inlineIteratorFailsFastOnUpgrade() {
+        Set<Integer> set = new CompactSet<>();
+        for (int i = 0; i < CompactSet.INLINE_SIZE; i++) {
+            set.add(i);
+        }
+        Iterator<Integer> it = set.iterator();
+        it.next();
+        set.add(CompactSet.INLINE_SIZE);
+        it.next();
+    }
+
+    @Test
+    public void inlineIteratorRemove() {
+        Set<Integer> set = new CompactSet<>();
+        for (int i = 0; i < CompactSet.INLINE_SIZE; i++) {
+            set.add(i);
+        }
+        for (Iterator<Integer> it = set.iterator(); it.hasNext(); ) {
+            if (it.next() % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(2, set.size());
+        assertTrue(set.contains(1));
+        assertFalse(set.contains(2));
+    }
+
+    /**
+     * The point of the class: a bucket with a few values costs less than a HashSet and its HashMap.
+     */
+    @Test
+    public void smallerThanHashSet() {
+        for (int count = 1; count <= CompactSet.INLINE_SIZE; count++) {
+            Set<Integer> compact = new CompactSet<>();
+            Set<Integer> hash = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                compact.add(i);
+                hash.add(i);
+            }
+            long compactSize = GraphLayout.parseInstance(compact).totalSize();
+            long hashSize = GraphLayout.parseInstance(hash).totalSize();
+            assertTrue(count + " values: " + compactSize + " >= " + hashSize, compactSize < hashSize);
+        }
+    }
+}
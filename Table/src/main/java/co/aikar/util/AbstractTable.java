@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import co.aikar.util.Table.Entry;
+import co.aikar.util.Table.TableConsumer;
+import co.aikar.util.Table.TableFunction;
+import co.aikar.util.Table.TablePredicate;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Base for tables, whatever their storage. Subclasses provide cell access, row views and iteration,
+ * and everything here is built on those.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public abstract class AbstractTable <R, C, V> implements Iterable<Entry<R, C, V>> {
+
+    private static final ClassValue<Class<?>> ITERATOR_OWNER = new ClassValue<Class<?>>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+            try {
+                return type.getMethod("iterator").getDeclaringClass();
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    public abstract V get(R row, C col);
+
+    public abstract V getOrDefault(R row, C col, V def);
+
+    public abstract boolean containsKey(R row, C col);
+
+    @Nullable
+    public abstract V put(R row, C col, V val);
+
+    public abstract V remove(R row, C col);
+
+    @Nullable
+    public abstract V replace(R row, C col, V val);
+
+    public abstract boolean replace(R row, C col, V old, V val);
+
+    public abstract V computeIfAbsent(R row, C col, BiFunction<R, C, V> function);
+
+    public abstract V computeIfPresent(R row, C col, TableFunction<R, C, V, V> function);
+
+    public abstract V compute(R row, C col, TableFunction<R, C, V, V> function);
+
+    public abstract V merge(R row, C col, V val, TableFunction<R, C, V, V> function);
+
+    public abstract Map<C, V> row(R row);
+
+    /**
+     * @return Whether the row has any cells
+     */
+    public abstract boolean containsRow(R row);
+
+    /**
+     * Rows to drive a join from, which must not be modified. May include rows left empty by removals,
+     * as joins check every row with {@link #containsRow(Object)} or {@link #rowCells(Object)}.
+     */
+    protected abstract Collection<R> rowKeys();
+
+    /**
+     * The cells of a row for joins to read, without allocating a view where the table stores a map per row.
+     *
+     * @return The columns of the row, which must not be modified, or null if the row has no cells
+     */
+    protected abstract Map<C, V> rowCells(R row);
+
+    /**
+     * Passes every cell of a row to the consumer, without allocating a view of the row.
+     */
+    protected void forEachInRow(R row, BiConsumer<? super C, ? super V> consumer) {
+        Map<C, V> cells = rowCells(row);
+        if (cells != null) {
+            cells.forEach(consumer);
+        }
+    }
+
+    @Override
+    public abstract Iterator<Entry<R, C, V>> iterator();
+
+    /**
+     * Copies every cell of another table into this one. The cells come from the other table's iterator, and go
+     * through {@link #putAll(Iterable)}, so each storage supplies its own side of the copy.
+     *
+     * @param table Table to copy from
+     */
+    public void putAll(AbstractTable<R, C, V> table) {
+        putAll((Iterable<Entry<R, C, V>>) table);
+    }
+
+    /**
+     * Puts every entry into this table.
+     *
+     * @param entries Entries to put
+     */
+    public void putAll(Iterable<? extends Entry<R, C, V>> entries) {
+        for (Entry<R, C, V> entry : entries) {
+            put(entry.getRow(), entry.getCol(), entry.getValue());
+        }
+    }
+
+    /**
+     * Merges every cell of another table into this one, through {@link #mergeAll(Iterable, BiFunction)}.
+     *
+     * @param table Table to merge from
+     * @param function Called with (oldValue, value) when a cell exists in both tables, null removes the cell
+     */
+    public void mergeAll(AbstractTable<R, C, V> table, BiFunction<? super V, ? super V, ? extends V> function) {
+        mergeAll((Iterable<Entry<R, C, V>>) table, function);
+    }
+
+    /**
+     * Merges every entry into this table.
+     *
+     * @param entries Entries to merge
+     * @param function Called with (oldValue, value) when the cell already exists, null removes the cell
+     */
+    public void mergeAll(Iterable<? extends Entry<R, C, V>> entries, BiFunction<? super V, ? super V, ? extends V> function) {
+        for (Entry<R, C, V> entry : entries) {
+            V val = entry.getValue();
+            compute(entry.getRow(), entry.getCol(), (r, c, old) -> old == null ? val : function.apply(old, val));
+        }
+    }
+
+    public void forEach(TableConsumer<R, C, V> consumer) {
+        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
+            Entry<R, C, V> entry = it.next();
+            consumer.accept(entry.getRow(), entry.getCol(), entry.getValue());
+        }
+    }
+
+    public void forEach(TablePredicate<R, C, V> predicate) {
+        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
+            Entry<R, C, V> entry = it.next();
+            if (!predicate.test(entry.getRow(), entry.getCol(), entry.getValue())) {
+                return;
+            }
+        }
+    }
+
+    public void removeIf(TablePredicate<R, C, V> predicate) {
+        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
+            Entry<R, C, V> entry = it.next();
+            if (predicate.test(entry.getRow(), entry.getCol(), entry.getValue())) {
+                it.remove();
+            }
+        }
+    }
+
+    public void replaceAll(TableFunction<R, C, V, V> function) {
+        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
+            Entry<R, C, V> entry = it.next();
+            entry.setValue(function.compose(entry.getRow(), entry.getCol(), entry.getValue()));
+        }
+    }
+
+    public Stream<Entry<R, C, V>> stream() {
+        return stream(false);
+    }
+
+    public Stream<Entry<R, C, V>> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    /**
+     * Streams and aggregation all go through this. Unless overridden it wraps {@link #iterator()}; an override
+     * must visit the same cells as the iterator. Table and FlatTable only use their own spliterator while
+     * their iterator has not been overridden, see {@link #overridesIterator(Class)}.
+     */
+    @Override
+    public Spliterator<Entry<R, C, V>> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL);
+    }
+
+    /**
+     * @param base Class whose iterator the caller's spliterator walks the same storage as
+     * @return Whether this table's class replaces the iterator declared by base
+     */
+    final boolean overridesIterator(Class<?> base) {
+        return ITERATOR_OWNER.get(getClass()) != base;
+    }
+
+    /**
+     * Folds the values of each row into a single result per row, such as per row totals.
+     *
+     * @param identity Initial value for each row
+     * @param accumulator Folds a value into the result so far
+     * @param combiner Combines two partial results, must be associative
+     * @param <A> Result Type
+     * @return Result for each row
+     */
+    public <A> Map<R, A> aggregateRows(A identity, BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner) {
+        return aggregateRows(identity, accumulator, combiner, false);
+    }
+
+    /**
+     * @see #aggregateRows(Object, BiFunction, BinaryOperator)
+     * @param parallel Whether to split the work by rows across the common fork join pool.
+     *                 Small tables are usually faster single threaded.
+     */
+    public <A> Map<R, A> aggregateRows(A identity, BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner, boolean parallel) {
+        return stream(parallel).collect(aggregator(Entry::getRow, identity, accumulator, combiner));
+    }
+
+    /**
+     * Folds the values of each column into a single result per column, across all rows.
+     *
+     * @see #aggregateRows(Object, BiFunction, BinaryOperator)
+     */
+    public <A> Map<C, A> aggregateColumns(A identity, BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner) {
+        return aggregateColumns(identity, accumulator, combiner, false);
+    }
+
+    /**
+     * @see #aggregateColumns(Object, BiFunction, BinaryOperator)
+     * @param parallel Whether to split the work by rows across the common fork join pool
+     */
+    public <A> Map<C, A> aggregateColumns(A identity, BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner, boolean parallel) {
+        return stream(parallel).collect(aggregator(Entry::getCol, identity, accumulator, combiner));
+    }
+
+    /**
+     * Folds every value in the table into a single result.
+     *
+     * @see #aggregateRows(Object, BiFunction, BinaryOperator)
+     */
+    public <A> A reduce(A identity, BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner) {
+        return reduce(identity, accumulator, combiner, false);
+    }
+
+    /**
+     * @see #reduce(Object, BiFunction, BinaryOperator)
+     * @param parallel Whether to split the work by rows across the common fork join pool
+     */
+    public <A> A reduce(A identity, BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner, boolean parallel) {
+        return stream(parallel).reduce(identity, (acc, entry) -> accumulator.apply(acc, entry.getValue()), combiner);
+    }
+
+    private static <K, R, C, V, A> Collector<Entry<R, C, V>, ?, Map<K, A>> aggregator(Function<Entry<R, C, V>, K> keyFunction, A identity,
+                                                                                    BiFunction<A, ? super V, A> accumulator, BinaryOperator<A> combiner) {
+        return Collector.of(
+                HashMap::new,
+                (Map<K, A> results, Entry<R, C, V> entry) -> results.compute(keyFunction.apply(entry),
+                        (key, acc) -> accumulator.apply(acc != null ? acc : identity, entry.getValue())),
+                (left, right) -> {
+                    right.forEach((key, acc) -> left.merge(key, acc, combiner));
+                    return left;
+                });
+    }
+
+    /**
+     * Joins this table with another on their row keys, calling the joiner once for every row present in both.
+     *
+     * Only the side with fewer rows is iterated, and each row is looked up in both sides with
+     * {@link #rowCells(Object)}. The column maps passed to the joiner are the tables' own rows where they
+     * store one, and must not be modified.
+     *
+     * @param other Table to join with
+     * @param joiner Called with (row, this row's columns, other row's columns). Null results are left out.
+     * @param <C2> Column Type of the other table
+     * @param <V2> Value Type of the other table
+     * @param <OUT> Result Type
+     * @return Results of the joiner for each shared row
+     */
+    public <C2, V2, OUT> Map<R, OUT> join(AbstractTable<R, C2, V2> other, TableFunction<R, Map<C, V>, Map<C2, V2>, OUT> joiner) {
+        return join(other, joiner, false);
+    }
+
+    /**
+     * @see #join(AbstractTable, TableFunction)
+     * @param parallel Whether to split the rows across the common fork join pool
+     */
+    public <C2, V2, OUT> Map<R, OUT> join(AbstractTable<R, C2, V2> other, TableFunction<R, Map<C, V>, Map<C2, V2>, OUT> joiner, boolean parallel) {
+        return StreamSupport.stream(smallerRowKeys(other).spliterator(), parallel).collect(HashMap::new, (results, row) -> {
+            Map<C, V> cells = rowCells(row);
+            Map<C2, V2> otherCells = cells != null ? other.rowCells(row) : null;
+            if (otherCells == null) {
+                return;
+            }
+            OUT result = joiner.compose(row, cells, otherCells);
+            if (result != null) {
+                results.put(row, result);
+            }
+        }, Map::putAll);
+    }
+
+    /**
+     * @param other Table to intersect with
+     * @return Rows that have cells in both tables
+     */
+    public Set<R> intersectRows(AbstractTable<R, ?, ?> other) {
+        return sharedRows(other, false).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * @param other Table to match rows against
+     * @return A new table with copies of the rows of this table that also have cells in the other table
+     */
+    public Table<R, C, V> semiJoin(AbstractTable<R, ?, ?> other) {
+        Table<R, C, V> result = new Table<>();
+        sharedRows(other, false).forEach(row -> forEachInRow(row, (col, val) -> result.put(row, col, val)));
+        return result;
+    }
+
+    private Stream<R> sharedRows(AbstractTable<R, ?, ?> other, boolean parallel) {
+        return StreamSupport.stream(smallerRowKeys(other).spliterator(), parallel)
+                .filter(row -> containsRow(row) && other.containsRow(row));
+    }
+
+    private Collection<R> smallerRowKeys(AbstractTable<R, ?, ?> other) {
+        Collection<R> left = rowKeys();
+        Collection<R> right = other.rowKeys();
+        return left.size() <= right.size() ? left : right;
+    }
+
+    /**
+     * @return A read only, compact copy of this table for read heavy, multi threaded lookups
+     */
+    public ImmutableTable<R, C, V> freeze() {
+        return ImmutableTable.copyOf(this);
+    }
+}
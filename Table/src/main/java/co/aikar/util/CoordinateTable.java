@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A table keyed by a pair of int coordinates, such as (chunkX, chunkZ) or (x, z).
+ *
+ * Both coordinates are packed into a single long and stored in one open addressing table, so there is no
+ * boxing and no Map per X like a Table&lt;Integer, Integer, V&gt; would need.
+ *
+ * Null values are not supported, and putting one, directly or through a {@link #row(int) row} view, throws a
+ * NullPointerException.
+ *
+ * @param <V> Value Type
+ */
+public class CoordinateTable <V> {
+
+    private static final Object TOMBSTONE = new Object();
+
+    private long[] keys;
+    private Object[] vals;
+    private int size;
+    private int used;
+
+    public CoordinateTable() {
+        this(16);
+    }
+
+    public CoordinateTable(int initialCapacity) {
+        int cap = 4;
+        while (cap * 3 < initialCapacity * 4) {
+            cap <<= 1;
+        }
+        allocate(cap);
+    }
+
+    public static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int getX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int getZ(long key) {
+        return (int) key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        allocate(keys.length);
+    }
+
+    public V get(int x, int z) {
+        int idx = find(key(x, z));
+        return idx != -1 ? valueAt(idx) : null;
+    }
+
+    public V getOrDefault(int x, int z, V def) {
+        int idx = find(key(x, z));
+        return idx != -1 ? valueAt(idx) : def;
+    }
+
+    public boolean containsKey(int x, int z) {
+        return find(key(x, z)) != -1;
+    }
+
+    @Nullable
+    public V put(int x, int z, V val) {
+        Objects.requireNonNull(val, "CoordinateTable does not support null values");
+        long key = key(x, z);
+        int idx = find(key);
+        if (idx != -1) {
+            V old = valueAt(idx);
+            vals[idx] = val;
+            return old;
+        }
+        insert(key, val);
+        return null;
+    }
+
+    public V computeIfAbsent(int x, int z, CoordinateFunction<V> function) {
+        long key = key(x, z);
+        int idx = find(key);
+        if (idx != -1) {
+            return valueAt(idx);
+        }
+        V val = function.apply(x, z);
+        if (val != null) {
+            insert(key, val);
+        }
+        return val;
+    }
+
+    public V remove(int x, int z) {
+        int idx = find(key(x, z));
+        if (idx == -1) {
+            return null;
+        }
+        V old = valueAt(idx);
+        vals[idx] = TOMBSTONE;
+        size--;
+        return old;
+    }
+
+    public void forEach(CoordinateConsumer<V> consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            Object val = vals[i];
+            if (val != null && val != TOMBSTONE) {
+                consumer.accept(getX(keys[i]), getZ(keys[i]), valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Visits every cell with minX &lt;= x &lt;= maxX and minZ &lt;= z &lt;= maxZ.
+     *
+     * Small ranges probe each coordinate directly, while ranges larger than the table scan it instead.
+     * The order cells are visited in is not defined.
+     */
+    public void forEachInRange(int minX, int minZ, int maxX, int maxZ, CoordinateConsumer<V> consumer) {
+        if (minX > maxX || minZ > maxZ) {
+            return;
+        }
+        long area = ((long) maxX - minX + 1) * ((long) maxZ - minZ + 1);
+        if (area <= size) {
+            for (int x = minX; ; x++) {
+                for (int z = minZ; ; z++) {
+                    int idx = find(key(x, z));
+                    if (idx != -1) {
+                        consumer.accept(x, z, valueAt(idx));
+                    }
+                    if (z == maxZ) {
+                        break;
+                    }
+                }
+                if (x == maxX) {
+                    break;
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            Object val = vals[i];
+            if (val != null && val != TOMBSTONE) {
+                int x = getX(keys[i]);
+                int z = getZ(keys[i]);
+                if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) {
+                    consumer.accept(x, z, valueAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param x X coordinate of the row
+     * @return A view of every cell with this X keyed by Z. Single cell operations probe directly,
+     * while size and iteration scan the table.
+     */
+    public Map<Integer, V> row(int x) {
+        return new RowView(x);
+    }
+
+    public interface CoordinateConsumer <V> {
+        void accept(int x, int z, V val);
+    }
+
+    public interface CoordinateFunction <V> {
+        V apply(int x, int z);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int idx) {
+        return (V) vals[idx];
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        Object val;
+        while ((val = vals[idx]) != null) {
+            if (val != TOMBSTONE && keys[idx] == key) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long key, Object val) {
+        if ((used + 1) * 4 > keys.length * 3) {
+            rehash(size * 2 >= used ? keys.length << 1 : keys.length);
+        }
+        int mask = keys.length - 1;
+        int idx = hash(key) & mask;
+        while (vals[idx] != null && vals[idx] != TOMBSTONE) {
+            idx = (idx + 1) & mask;
+        }
+        if (vals[idx] == null) {
+            used++;
+        }
+        keys[idx] = key;
+        vals[idx] = val;
+        size++;
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        Object[] oldVals = vals;
+        allocate(newCap);
+        int mask = newCap - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object val = oldVals[i];
+            if (val == null || val == TOMBSTONE) {
+                continue;
+            }
+            int idx = hash(oldKeys[i]) & mask;
+            while (vals[idx] != null) {
+                idx = (idx + 1) & mask;
+            }
+            keys[idx] = oldKeys[i];
+            vals[idx] = val;
+            size++;
+            used++;
+        }
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        vals = new Object[cap];
+        size = 0;
+        used = 0;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private class RowView extends AbstractMap<Integer, V> {
+        private final int x;
+
+        RowView(int x) {
+            this.x = x;
+        }
+
+        @Override
+        public V get(Object key) {
+            return key instanceof Integer ? CoordinateTable.this.get(x, (Integer) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && CoordinateTable.this.containsKey(x, (Integer) key);
+        }
+
+        @Override
+        public V put(Integer key, V value) {
+            Objects.requireNonNull(key, "CoordinateTable does not support null keys");
+            return CoordinateTable.this.put(x, key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return key instanceof Integer ? CoordinateTable.this.remove(x, (Integer) key) : null;
+        }
+
+        @NotNull
+        @Override
+        public Set<Map.Entry<Integer, V>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, V>>() {
+                @Override
+                public Iterator<Map.Entry<Integer, V>> iterator() {
+                    return new Iterator<Map.Entry<Integer, V>>() {
+                        private final long[] keys = CoordinateTable.this.keys;
+                        private final Object[] vals = CoordinateTable.this.vals;
+                        private int next = advance(0);
+                        private int last = -1;
+
+                        private int advance(int idx) {
+                            while (idx < keys.length && !(vals[idx] != null && vals[idx] != TOMBSTONE && getX(keys[idx]) == x)) {
+                                idx++;
+                            }
+                            return idx;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        public Map.Entry<Integer, V> next() {
+                            if (next >= keys.length) {
+                                throw new NoSuchElementException();
+                            }
+                            last = next;
+                            next = advance(next + 1);
+                            return new SimpleEntry<Integer, V>(getZ(keys[last]), valueAt(last)) {
+                                @Override
+                                public V setValue(V value) {
+                                    super.setValue(value);
+                                    return CoordinateTable.this.put(x, getKey(), value);
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == -1) {
+                                throw new IllegalStateException();
+                            }
+                            CoordinateTable.this.remove(x, getZ(keys[last]));
+                            last = -1;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (int i = 0; i < keys.length; i++) {
+                        if (vals[i] != null && vals[i] != TOMBSTONE && getX(keys[i]) == x) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+}
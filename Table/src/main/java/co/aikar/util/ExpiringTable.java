@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A table where every cell expires after a time to live, such as cooldowns or rate limits.
+ *
+ * Expired cells are treated as absent by every read. They are physically removed by a hierarchical timer wheel
+ * as time advances, which happens on writes and on {@link #cleanUp()}, so the cost of cleaning up is proportional
+ * to the number of cells that expired rather than the size of the table.
+ *
+ * Time is measured in milliseconds from a {@link LongSupplier} clock, which defaults to a monotonic clock.
+ *
+ * This class is not thread safe.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public class ExpiringTable <R, C, V> {
+
+    private static final int BITS = 6;
+    private static final int BUCKETS = 1 << BITS;
+    private static final int MASK = BUCKETS - 1;
+    private static final int LEVELS = 4;
+
+    private final Table<R, C, Node<R, C, V>> table;
+    private final Node<R, C, V>[][] wheel;
+    private final LongSupplier clock;
+    private final long defaultTtl;
+    private long currentTime;
+    private int size;
+
+    public ExpiringTable(long defaultTtl, TimeUnit unit) {
+        this(defaultTtl, unit, () -> System.nanoTime() / 1_000_000L);
+    }
+
+    /**
+     * @param defaultTtl Time to live used by {@link #put(Object, Object, Object)}
+     * @param unit Unit of defaultTtl
+     * @param clock Current time in milliseconds
+     */
+    public ExpiringTable(long defaultTtl, TimeUnit unit, LongSupplier clock) {
+        this.table = new Table<>();
+        this.defaultTtl = unit.toMillis(defaultTtl);
+        this.clock = clock;
+        this.currentTime = clock.getAsLong();
+        @SuppressWarnings("unchecked")
+        Node<R, C, V>[][] wheel = (Node<R, C, V>[][]) new Node<?, ?, ?>[LEVELS][BUCKETS];
+        this.wheel = wheel;
+        for (Node<R, C, V>[] buckets : wheel) {
+            for (int i = 0; i < BUCKETS; i++) {
+                Node<R, C, V> sentinel = new Node<>(null, null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                buckets[i] = sentinel;
+            }
+        }
+    }
+
+    public V get(R row, C col) {
+        Node<R, C, V> node = getLive(row, col, clock.getAsLong());
+        return node != null ? node.value : null;
+    }
+
+    public V getOrDefault(R row, C col, V def) {
+        Node<R, C, V> node = getLive(row, col, clock.getAsLong());
+        return node != null ? node.value : def;
+    }
+
+    public boolean containsKey(R row, C col) {
+        return getLive(row, col, clock.getAsLong()) != null;
+    }
+
+    /**
+     * @param row Row
+     * @param col Column
+     * @param unit Unit to return
+     * @return Time until the cell expires, or 0 if it does not exist
+     */
+    public long getRemaining(R row, C col, TimeUnit unit) {
+        long now = clock.getAsLong();
+        Node<R, C, V> node = getLive(row, col, now);
+        return node != null ? unit.convert(node.expiresAt - now, TimeUnit.MILLISECONDS) : 0;
+    }
+
+    @Nullable
+    public V put(R row, C col, V val) {
+        return put(row, col, val, defaultTtl, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores a value that expires after the specified time to live.
+     *
+     * @return The previous value if it had not expired yet
+     */
+    @Nullable
+    public V put(R row, C col, V val, long ttl, TimeUnit unit) {
+        long now = clock.getAsLong();
+        advance(now);
+        long expiresAt = now + unit.toMillis(ttl);
+        Node<R, C, V> node = table.get(row, col);
+        V old = null;
+        if (node != null) {
+            unlink(node);
+            if (node.expiresAt > now) {
+                old = node.value;
+            }
+        } else {
+            node = new Node<>(row, col);
+            table.put(row, col, node);
+            size++;
+        }
+        node.value = val;
+        node.expiresAt = expiresAt;
+        schedule(node);
+        return old;
+    }
+
+    public V remove(R row, C col) {
+        long now = clock.getAsLong();
+        Node<R, C, V> node = table.remove(row, col);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        size--;
+        return node.expiresAt > now ? node.value : null;
+    }
+
+    public void clear() {
+        for (Iterator<Table.Entry<R, C, Node<R, C, V>>> it = table.iterator(); it.hasNext(); ) {
+            unlink(it.next().getValue());
+            it.remove();
+        }
+        size = 0;
+    }
+
+    /**
+     * @return Number of cells, after removing any that have expired
+     */
+    public int size() {
+        cleanUp();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void forEach(Table.TableConsumer<R, C, V> consumer) {
+        long now = clock.getAsLong();
+        for (Table.Entry<R, C, Node<R, C, V>> entry : table) {
+            Node<R, C, V> node = entry.getValue();
+            if (node.expiresAt > now) {
+                consumer.accept(entry.getRow(), entry.getCol(), node.value);
+            }
+        }
+    }
+
+    /**
+     * Advances the timer wheel to the current time, removing every cell that has expired since the last advance.
+     *
+     * Call this periodically if the table is not written to often, so expired cells do not linger in memory.
+     *
+     * @return Number of cells removed
+     */
+    public int cleanUp() {
+        return advance(clock.getAsLong());
+    }
+
+    private Node<R, C, V> getLive(R row, C col, long now) {
+        Node<R, C, V> node = table.get(row, col);
+        if (node == null) {
+            return null;
+        }
+        if (node.expiresAt <= now) {
+            expire(node);
+            return null;
+        }
+        return node;
+    }
+
+    private int advance(long now) {
+        long prev = currentTime;
+        if (now <= prev) {
+            return 0;
+        }
+        currentTime = now;
+        int expired = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            long prevTicks = prev >> (BITS * level);
+            long delta = (now >> (BITS * level)) - prevTicks;
+            if (delta <= 0) {
+                break;
+            }
+            int start = (int) (prevTicks & MASK);
+            int steps = (int) Math.min(delta + 1, BUCKETS);
+            for (int i = 0; i < steps; i++) {
+                expired += expireBucket(wheel[level][(start + i) & MASK], now);
+            }
+        }
+        return expired;
+    }
+
+    private int expireBucket(Node<R, C, V> sentinel, long now) {
+        Node<R, C, V> node = sentinel.next;
+        if (node == sentinel) {
+            return 0;
+        }
+        // Detach the whole bucket first, so rescheduled nodes can safely land back in it
+        sentinel.prev.next = null;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+
+        int expired = 0;
+        while (node != null) {
+            Node<R, C, V> next = node.next;
+            node.prev = null;
+            node.next = null;
+            if (node.expiresAt <= now) {
+                table.remove(node.row, node.col);
+                size--;
+                expired++;
+            } else {
+                schedule(node);
+            }
+            node = next;
+        }
+        return expired;
+    }
+
+    private void expire(Node<R, C, V> node) {
+        unlink(node);
+        table.remove(node.row, node.col);
+        size--;
+    }
+
+    private void schedule(Node<R, C, V> node) {
+        long delta = node.expiresAt - currentTime;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        Node<R, C, V> sentinel = wheel[level][(int) ((node.expiresAt >> (BITS * level)) & MASK)];
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static <R, C, V> void unlink(Node<R, C, V> node) {
+        if (node.next != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    private static class Node <R, C, V> {
+        private final R row;
+        private final C col;
+        private V value;
+        private long expiresAt;
+        private Node<R, C, V> prev;
+        private Node<R, C, V> next;
+
+        Node(R row, C col) {
+            this.row = row;
+            this.col = col;
+        }
+    }
+}
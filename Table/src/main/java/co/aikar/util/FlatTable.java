@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import co.aikar.util.Table.Entry;
+import co.aikar.util.Table.TableFunction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A table that stores every cell in a single open addressing hash table keyed on the (row, col) pair,
+ * instead of a Map per row like {@link Table}.
+ *
+ * This is meant for sparse tables where most rows only have one or two columns, where the per row Map
+ * overhead of a regular Table dominates memory. {@link #get(Object, Object)} is a single probe and no key
+ * object is allocated per lookup.
+ *
+ * {@link #row(Object)}, {@link #containsRow(Object)} and the joins are still supported through an index of slots
+ * by row, built on demand with a scan of the whole table and dropped again by any insert or removal.
+ * Prefer the cell methods when writes and row reads are interleaved.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public class FlatTable <R, C, V> extends AbstractTable<R, C, V> {
+
+    private static final Object NULL_KEY = new Object();
+    private static final Object TOMBSTONE = new Object();
+    private static final int[] NO_SLOTS = new int[0];
+
+    private Object[] rows;
+    private Object[] cols;
+    private Object[] vals;
+    private int[] hashes;
+    private int size;
+    private int used;
+    private Map<Object, int[]> rowSlots;
+
+    public FlatTable() {
+        this(16);
+    }
+
+    public FlatTable(int initialCapacity) {
+        int cap = 4;
+        while (cap * 3 < initialCapacity * 4) {
+            cap <<= 1;
+        }
+        allocate(cap);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        allocate(rows.length);
+    }
+
+    @Override
+    public V get(R row, C col) {
+        int idx = find(row, col);
+        return idx != -1 ? valueAt(idx) : null;
+    }
+
+    @Override
+    public V getOrDefault(R row, C col, V def) {
+        int idx = find(row, col);
+        return idx != -1 ? valueAt(idx) : def;
+    }
+
+    @Override
+    public boolean containsKey(R row, C col) {
+        return find(row, col) != -1;
+    }
+
+    @Nullable
+    @Override
+    public V put(R row, C col, V val) {
+        int idx = find(row, col);
+        if (idx != -1) {
+            V old = valueAt(idx);
+            vals[idx] = val;
+            return old;
+        }
+        insert(row, col, val);
+        return null;
+    }
+
+    @Override
+    public V remove(R row, C col) {
+        return removeCell(row, col);
+    }
+
+    @Nullable
+    @Override
+    public V replace(R row, C col, V val) {
+        int idx = find(row, col);
+        if (idx == -1) {
+            return null;
+        }
+        V old = valueAt(idx);
+        vals[idx] = val;
+        return old;
+    }
+
+    @Override
+    public boolean replace(R row, C col, V old, V val) {
+        int idx = find(row, col);
+        if (idx == -1 || !Objects.equals(vals[idx], old)) {
+            return false;
+        }
+        vals[idx] = val;
+        return true;
+    }
+
+    @Override
+    public V computeIfAbsent(R row, C col, BiFunction<R, C, V> function) {
+        int idx = find(row, col);
+        if (idx != -1 && vals[idx] != null) {
+            return valueAt(idx);
+        }
+        V val = function.apply(row, col);
+        if (val != null) {
+            if (idx != -1) {
+                vals[idx] = val;
+            } else {
+                insert(row, col, val);
+            }
+        }
+        return val;
+    }
+
+    @Override
+    public V computeIfPresent(R row, C col, TableFunction<R, C, V, V> function) {
+        int idx = find(row, col);
+        if (idx == -1 || vals[idx] == null) {
+            return null;
+        }
+        V val = function.compose(row, col, valueAt(idx));
+        if (val == null) {
+            removeAt(idx);
+        } else {
+            vals[idx] = val;
+        }
+        return val;
+    }
+
+    @Override
+    public V compute(R row, C col, TableFunction<R, C, V, V> function) {
+        int idx = find(row, col);
+        V val = function.compose(row, col, idx != -1 ? valueAt(idx) : null);
+        if (val == null) {
+            if (idx != -1) {
+                removeAt(idx);
+            }
+        } else if (idx != -1) {
+            vals[idx] = val;
+        } else {
+            insert(row, col, val);
+        }
+        return val;
+    }
+
+    @Override
+    public V merge(R row, C col, V val, TableFunction<R, C, V, V> function) {
+        int idx = find(row, col);
+        if (idx == -1) {
+            insert(row, col, val);
+            return val;
+        }
+        V newVal = vals[idx] == null ? val : function.compose(row, col, val);
+        if (newVal == null) {
+            removeAt(idx);
+        } else {
+            vals[idx] = newVal;
+        }
+        return newVal;
+    }
+
+    @Override
+    public Map<C, V> row(R row) {
+        return new RowView(row);
+    }
+
+    @Override
+    public boolean containsRow(R row) {
+        return rowSlots().containsKey(maskNull(row));
+    }
+
+    @Override
+    protected Collection<R> rowKeys() {
+        Collection<R> keys = new ArrayList<>(rowSlots().size());
+        for (Object row : rowSlots.keySet()) {
+            keys.add(unmaskNull(row));
+        }
+        return keys;
+    }
+
+    /**
+     * There is no map per row to hand out, so this allocates a row view. {@link #forEachInRow} walks the
+     * row's slots instead.
+     */
+    @Override
+    protected Map<C, V> rowCells(R row) {
+        return containsRow(row) ? new RowView(row) : null;
+    }
+
+    @Override
+    protected void forEachInRow(R row, BiConsumer<? super C, ? super V> consumer) {
+        for (int idx : slotsOf(row)) {
+            consumer.accept(unmaskNull(cols[idx]), valueAt(idx));
+        }
+    }
+
+    @Override
+    public Iterator<Entry<R, C, V>> iterator() {
+        return new Iterator<Entry<R, C, V>>() {
+            private int next = advance(0);
+            private int last = -1;
+
+            private int advance(int idx) {
+                while (idx < rows.length && (rows[idx] == null || rows[idx] == TOMBSTONE)) {
+                    idx++;
+                }
+                return idx;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < rows.length;
+            }
+
+            @Override
+            public Entry<R, C, V> next() {
+                if (next >= rows.length) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance(next + 1);
+                return new Slot(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * Splits by ranges of the hash table, so a parallel stream spreads cells evenly regardless of rows.
+     * If a subclass overrides {@link #iterator()}, streams wrap that iterator instead.
+     */
+    @Override
+    public Spliterator<Entry<R, C, V>> spliterator() {
+        if (overridesIterator(FlatTable.class)) {
+            return super.spliterator();
+        }
+        return new SlotSpliterator(0, rows.length);
+    }
+
+    private int find(Object row, Object col) {
+        Object r = maskNull(row);
+        Object c = maskNull(col);
+        int hash = hash(r, c);
+        int mask = rows.length - 1;
+        int idx = hash & mask;
+        Object cur;
+        while ((cur = rows[idx]) != null) {
+            if (cur != TOMBSTONE && hashes[idx] == hash && r.equals(cur) && c.equals(cols[idx])) {
+                return idx;
+            }
+            idx = (idx + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Takes the keys as Objects, so the row views can remove by any key without a cast.
+     */
+    private V removeCell(Object row, Object col) {
+        int idx = find(row, col);
+        if (idx == -1) {
+            return null;
+        }
+        V old = valueAt(idx);
+        removeAt(idx);
+        return old;
+    }
+
+    /**
+     * @return Slots of every live cell, grouped by masked row key
+     */
+    private Map<Object, int[]> rowSlots() {
+        if (rowSlots != null) {
+            return rowSlots;
+        }
+        Map<Object, int[]> counts = new HashMap<>();
+        for (Object r : rows) {
+            if (r != null && r != TOMBSTONE) {
+                counts.computeIfAbsent(r, k -> new int[1])[0]++;
+            }
+        }
+        Map<Object, int[]> index = new HashMap<>(counts.size() * 4 / 3 + 1);
+        for (int i = 0; i < rows.length; i++) {
+            Object r = rows[i];
+            if (r == null || r == TOMBSTONE) {
+                continue;
+            }
+            int[] count = counts.get(r);
+            int[] slots = index.computeIfAbsent(r, k -> new int[count[0]]);
+            slots[slots.length - count[0]--] = i;
+        }
+        return rowSlots = index;
+    }
+
+    private int[] slotsOf(Object row) {
+        int[] slots = rowSlots().get(maskNull(row));
+        return slots != null ? slots : NO_SLOTS;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T valueAt(int idx) {
+        return (T) vals[idx];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unmaskNull(Object key) {
+        return key == NULL_KEY ? null : (T) key;
+    }
+
+    private void insert(R row, C col, V val) {
+        if ((used + 1) * 4 > rows.length * 3) {
+            // Only grow if the table is actually full of live cells, otherwise just clear out tombstones
+            rehash(size * 2 >= used ? rows.length << 1 : rows.length);
+        }
+        Object r = maskNull(row);
+        Object c = maskNull(col);
+        int hash = hash(r, c);
+        int mask = rows.length - 1;
+        int idx = hash & mask;
+        while (rows[idx] != null && rows[idx] != TOMBSTONE) {
+            idx = (idx + 1) & mask;
+        }
+        if (rows[idx] == null) {
+            used++;
+        }
+        rows[idx] = r;
+        cols[idx] = c;
+        vals[idx] = val;
+        hashes[idx] = hash;
+        size++;
+        rowSlots = null;
+    }
+
+    private void removeAt(int idx) {
+        rows[idx] = TOMBSTONE;
+        cols[idx] = null;
+        vals[idx] = null;
+        size--;
+        rowSlots = null;
+    }
+
+    private void rehash(int newCap) {
+        Object[] oldRows = rows;
+        Object[] oldCols = cols;
+        Object[] oldVals = vals;
+        int[] oldHashes = hashes;
+        allocate(newCap);
+        int mask = newCap - 1;
+        for (int i = 0; i < oldRows.length; i++) {
+            Object r = oldRows[i];
+            if (r == null || r == TOMBSTONE) {
+                continue;
+            }
+            int idx = oldHashes[i] & mask;
+            while (rows[idx] != null) {
+                idx = (idx + 1) & mask;
+            }
+            rows[idx] = r;
+            cols[idx] = oldCols[i];
+            vals[idx] = oldVals[i];
+            hashes[idx] = oldHashes[i];
+            size++;
+            used++;
+        }
+    }
+
+    private void allocate(int cap) {
+        rows = new Object[cap];
+        cols = new Object[cap];
+        vals = new Object[cap];
+        hashes = new int[cap];
+        size = 0;
+        used = 0;
+        rowSlots = null;
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static int hash(Object row, Object col) {
+        int h = row.hashCode() * 31 + col.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private class Slot implements Entry<R, C, V> {
+        private final int idx;
+        private final R row;
+        private final C col;
+
+        Slot(int idx) {
+            this.idx = idx;
+            this.row = unmaskNull(rows[idx]);
+            this.col = unmaskNull(cols[idx]);
+        }
+
+        @Override
+        public R getRow() {
+            return row;
+        }
+
+        @Override
+        public C getCol() {
+            return col;
+        }
+
+        @Override
+        public V getValue() {
+            return valueAt(idx);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = valueAt(idx);
+            vals[idx] = value;
+            return old;
+        }
+    }
+
+    private class SlotSpliterator implements Spliterator<Entry<R, C, V>> {
+        private int idx;
+        private final int end;
+
+        SlotSpliterator(int idx, int end) {
+            this.idx = idx;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<R, C, V>> action) {
+            while (idx < end) {
+                Object r = rows[idx++];
+                if (r != null && r != TOMBSTONE) {
+                    action.accept(new Slot(idx - 1));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Entry<R, C, V>> trySplit() {
+            int mid = (idx + end) >>> 1;
+            if (mid - idx < 64) {
+                return null;
+            }
+            SlotSpliterator split = new SlotSpliterator(idx, mid);
+            idx = mid;
+            return split;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (long) size * (end - idx) / rows.length;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL;
+        }
+    }
+
+    private class RowView extends AbstractMap<C, V> {
+        private final R row;
+
+        RowView(R row) {
+            this.row = row;
+        }
+
+        @Override
+        public V get(Object key) {
+            int idx = find(row, key);
+            return idx != -1 ? valueAt(idx) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(row, key) != -1;
+        }
+
+        @Override
+        public V put(C key, V value) {
+            return FlatTable.this.put(row, key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return removeCell(row, key);
+        }
+
+        @Override
+        public int size() {
+            return slotsOf(row).length;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !containsRow(row);
+        }
+
+        @NotNull
+        @Override
+        public Set<Map.Entry<C, V>> entrySet() {
+            return new AbstractSet<Map.Entry<C, V>>() {
+                @NotNull
+                @Override
+                public Iterator<Map.Entry<C, V>> iterator() {
+                    int[] slots = slotsOf(row);
+                    return new Iterator<Map.Entry<C, V>>() {
+                        private int next;
+                        private int last = -1;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < slots.length;
+                        }
+
+                        @Override
+                        public Map.Entry<C, V> next() {
+                            if (next >= slots.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int idx = last = slots[next++];
+                            return new SimpleEntry<C, V>(unmaskNull(cols[idx]), valueAt(idx)) {
+                                @Override
+                                public V setValue(V value) {
+                                    super.setValue(value);
+                                    V old = valueAt(idx);
+                                    vals[idx] = value;
+                                    return old;
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == -1) {
+                                throw new IllegalStateException();
+                            }
+                            // Removal only leaves a tombstone, so the remaining slots stay valid
+                            removeAt(last);
+                            last = -1;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return RowView.this.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read only, compact copy of a {@link Table}.
+ *
+ * All cells live in a few flat arrays grouped by row. Rows are found through an open addressing index,
+ * and the columns of a row are sorted by hash, so a lookup is one row probe plus a binary search
+ * over a contiguous range, with no Map allocated per row.
+ *
+ * Instances never change once built, so they are safe to read from any number of threads. To refresh one,
+ * build a new copy with {@link Table#freeze()} and swap it into a volatile field.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public final class ImmutableTable <R, C, V> implements Iterable<Table.Entry<R, C, V>> {
+
+    private final Object[] rowKeys;
+    private final int[] rowIndex;
+    private final int[] rowOffsets;
+    private final int[] colHashes;
+    private final Object[] colKeys;
+    private final Object[] values;
+
+    private ImmutableTable(Object[] rowKeys, int[] rowIndex, int[] rowOffsets, int[] colHashes, Object[] colKeys, Object[] values) {
+        this.rowKeys = rowKeys;
+        this.rowIndex = rowIndex;
+        this.rowOffsets = rowOffsets;
+        this.colHashes = colHashes;
+        this.colKeys = colKeys;
+        this.values = values;
+    }
+
+    /**
+     * Builds an immutable copy of the current contents of the table.
+     *
+     * @param table Table to copy
+     * @param <R> Row Type
+     * @param <C> Column Type
+     * @param <V> Value Type
+     * @return ImmutableTable
+     */
+    public static <R, C, V> ImmutableTable<R, C, V> copyOf(AbstractTable<R, C, V> table) {
+        Map<Object, Integer> rowIds = new HashMap<>();
+        int[] cellRows = new int[16];
+        Object[] cells = new Object[32];
+        int size = 0;
+        for (Table.Entry<R, C, V> entry : table) {
+            if (size == cellRows.length) {
+                cellRows = Arrays.copyOf(cellRows, size << 1);
+                cells = Arrays.copyOf(cells, size << 2);
+            }
+            Integer id = rowIds.get(entry.getRow());
+            if (id == null) {
+                id = rowIds.size();
+                rowIds.put(entry.getRow(), id);
+            }
+            cellRows[size] = id;
+            cells[size << 1] = entry.getCol();
+            cells[(size << 1) + 1] = entry.getValue();
+            size++;
+        }
+
+        int rows = rowIds.size();
+        Object[] rowKeys = new Object[rows];
+        rowIds.forEach((row, id) -> rowKeys[id] = row);
+
+        int[] rowOffsets = new int[rows + 1];
+        for (int i = 0; i < size; i++) {
+            rowOffsets[cellRows[i] + 1]++;
+        }
+        for (int i = 0; i < rows; i++) {
+            rowOffsets[i + 1] += rowOffsets[i];
+        }
+
+        // Group cells by row, then order each row's columns by hash for findCol's binary search
+        int[] cellHashes = new int[size];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            cellHashes[i] = hash(cells[i << 1]);
+            order[i] = i;
+        }
+        int[] cellRowIds = cellRows;
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> cellRowIds[i]).thenComparingInt(i -> cellHashes[i]));
+
+        int[] colHashes = new int[size];
+        Object[] colKeys = new Object[size];
+        Object[] values = new Object[size];
+        for (int pos = 0; pos < size; pos++) {
+            int i = order[pos];
+            colHashes[pos] = cellHashes[i];
+            colKeys[pos] = cells[i << 1];
+            values[pos] = cells[(i << 1) + 1];
+        }
+
+        int[] rowIndex = new int[tableSizeFor(rows)];
+        int mask = rowIndex.length - 1;
+        for (int i = 0; i < rows; i++) {
+            int slot = hash(rowKeys[i]) & mask;
+            while (rowIndex[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            rowIndex[slot] = i + 1;
+        }
+
+        return new ImmutableTable<>(rowKeys, rowIndex, rowOffsets, colHashes, colKeys, values);
+    }
+
+    public V get(R row, C col) {
+        return getOrDefault(row, col, null);
+    }
+
+    public V getOrDefault(R row, C col, V def) {
+        int rowId = findRow(row);
+        if (rowId == -1) {
+            return def;
+        }
+        int idx = findCol(rowId, col);
+        return idx != -1 ? valueAt(idx) : def;
+    }
+
+    public boolean containsKey(R row, C col) {
+        int rowId = findRow(row);
+        return rowId != -1 && findCol(rowId, col) != -1;
+    }
+
+    public boolean containsRow(R row) {
+        return findRow(row) != -1;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * @param row Row to view
+     * @return Read only view of the columns of a row, or an empty map if the row does not exist
+     */
+    public Map<C, V> row(R row) {
+        int rowId = findRow(row);
+        if (rowId == -1) {
+            return Collections.emptyMap();
+        }
+        return new RowView(rowId);
+    }
+
+    public Set<R> rowKeySet() {
+        return new AbstractSet<R>() {
+            @Override
+            public Iterator<R> iterator() {
+                @SuppressWarnings("unchecked")
+                Iterator<R> iterator = (Iterator<R>) Arrays.asList(rowKeys).iterator();
+                return iterator;
+            }
+
+            @Override
+            public int size() {
+                return rowKeys.length;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return findRow(o) != -1;
+            }
+        };
+    }
+
+    public void forEach(Table.TableConsumer<R, C, V> consumer) {
+        for (int rowId = 0; rowId < rowKeys.length; rowId++) {
+            R row = rowAt(rowId);
+            for (int i = rowOffsets[rowId]; i < rowOffsets[rowId + 1]; i++) {
+                consumer.accept(row, colAt(i), valueAt(i));
+            }
+        }
+    }
+
+    public Stream<Table.Entry<R, C, V>> stream() {
+        return stream(false);
+    }
+
+    public Stream<Table.Entry<R, C, V>> stream(boolean parallel) {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), values.length,
+                Spliterator.IMMUTABLE | Spliterator.NONNULL), parallel);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<Table.Entry<R, C, V>> iterator() {
+        return new Iterator<Table.Entry<R, C, V>>() {
+            private int rowId = 0;
+            private int idx = 0;
+
+            @Override
+            public boolean hasNext() {
+                return idx < values.length;
+            }
+
+            @Override
+            public Table.Entry<R, C, V> next() {
+                if (idx >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                while (idx >= rowOffsets[rowId + 1]) {
+                    rowId++;
+                }
+                return new Cell(rowId, idx++);
+            }
+        };
+    }
+
+    private int findRow(Object row) {
+        int mask = rowIndex.length - 1;
+        int slot = hash(row) & mask;
+        int id;
+        while ((id = rowIndex[slot]) != 0) {
+            if (Objects.equals(rowKeys[id - 1], row)) {
+                return id - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findCol(int rowId, Object col) {
+        int h = hash(col);
+        int lo = rowOffsets[rowId];
+        int hi = rowOffsets[rowId + 1];
+        int end = hi;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (colHashes[mid] < h) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < end && colHashes[i] == h; i++) {
+            if (Objects.equals(colKeys[i], col)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int size) {
+        int cap = 2;
+        while (cap < size * 2) {
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R rowAt(int rowId) {
+        return (R) rowKeys[rowId];
+    }
+
+    @SuppressWarnings("unchecked")
+    private C colAt(int idx) {
+        return (C) colKeys[idx];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int idx) {
+        return (V) values[idx];
+    }
+
+    private final class Cell implements Table.Entry<R, C, V> {
+        private final int rowId;
+        private final int idx;
+
+        Cell(int rowId, int idx) {
+            this.rowId = rowId;
+            this.idx = idx;
+        }
+
+        @Override
+        public R getRow() {
+            return rowAt(rowId);
+        }
+
+        @Override
+        public C getCol() {
+            return colAt(idx);
+        }
+
+        @Override
+        public V getValue() {
+            return valueAt(idx);
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class RowView extends AbstractMap<C, V> {
+        private final int rowId;
+
+        RowView(int rowId) {
+            this.rowId = rowId;
+        }
+
+        @Override
+        public V get(Object key) {
+            int idx = findCol(rowId, key);
+            return idx != -1 ? valueAt(idx) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return findCol(rowId, key) != -1;
+        }
+
+        @Override
+        public int size() {
+            return rowOffsets[rowId + 1] - rowOffsets[rowId];
+        }
+
+        @NotNull
+        @Override
+        public Set<Map.Entry<C, V>> entrySet() {
+            return new AbstractSet<Map.Entry<C, V>>() {
+                @Override
+                public Iterator<Map.Entry<C, V>> iterator() {
+                    return new Iterator<Map.Entry<C, V>>() {
+                        private int idx = rowOffsets[rowId];
+
+                        @Override
+                        public boolean hasNext() {
+                            return idx < rowOffsets[rowId + 1];
+                        }
+
+                        @Override
+                        public Map.Entry<C, V> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<C, V> entry = new SimpleImmutableEntry<>(colAt(idx), valueAt(idx));
+                            idx++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return RowView.this.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * A {@link Table} with sorted rows and columns, supporting range queries over both.
+ *
+ * Rows and the columns of each row are kept in {@link NavigableMap}s, so range queries such as
+ * {@link #subTable(Object, Object)} or {@link #tailColumns(Object, Object)} are answered in O(log n + k)
+ * straight from the maps, instead of iterating and filtering the whole table.
+ *
+ * Views returned by the range methods are live and write through to this table, except the column views
+ * of a row that does not exist yet, which are empty and read only.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public class NavigableTable <R, C, V> extends Table<R, C, V> {
+
+    private final NavigableMap<R, Map<C, V>> rowMap;
+    private final Function<R, Map<C, V>> colMapSupplier;
+
+    public NavigableTable() {
+        this(new TreeMap<>(), r -> new TreeMap<>());
+    }
+
+    public NavigableTable(Comparator<? super R> rowComparator, Comparator<? super C> colComparator) {
+        this(new TreeMap<>(rowComparator), r -> new TreeMap<>(colComparator));
+    }
+
+    private NavigableTable(NavigableMap<R, Map<C, V>> rowMap, Function<R, Map<C, V>> colMapSupplier) {
+        super(rowMap, colMapSupplier);
+        this.rowMap = rowMap;
+        this.colMapSupplier = colMapSupplier;
+    }
+
+    public R firstRow() {
+        return nonEmpty(rowMap.firstEntry(), true);
+    }
+
+    public R lastRow() {
+        return nonEmpty(rowMap.lastEntry(), false);
+    }
+
+    public R ceilingRow(R row) {
+        return nonEmpty(rowMap.ceilingEntry(row), true);
+    }
+
+    public R higherRow(R row) {
+        return nonEmpty(rowMap.higherEntry(row), true);
+    }
+
+    public R floorRow(R row) {
+        return nonEmpty(rowMap.floorEntry(row), false);
+    }
+
+    public R lowerRow(R row) {
+        return nonEmpty(rowMap.lowerEntry(row), false);
+    }
+
+    /**
+     * @return Live view of the rows from fromRow (inclusive) to toRow (exclusive)
+     */
+    public NavigableTable<R, C, V> subTable(R fromRow, R toRow) {
+        return subTable(fromRow, true, toRow, false);
+    }
+
+    public NavigableTable<R, C, V> subTable(R fromRow, boolean fromInclusive, R toRow, boolean toInclusive) {
+        return new NavigableTable<>(rowMap.subMap(fromRow, fromInclusive, toRow, toInclusive), colMapSupplier);
+    }
+
+    public NavigableTable<R, C, V> headTable(R toRow, boolean inclusive) {
+        return new NavigableTable<>(rowMap.headMap(toRow, inclusive), colMapSupplier);
+    }
+
+    public NavigableTable<R, C, V> tailTable(R fromRow, boolean inclusive) {
+        return new NavigableTable<>(rowMap.tailMap(fromRow, inclusive), colMapSupplier);
+    }
+
+    /**
+     * @return Read only view of the rows from fromRow (inclusive) to toRow (exclusive). Rows may be empty.
+     */
+    public NavigableMap<R, Map<C, V>> rowRange(R fromRow, R toRow) {
+        return Collections.unmodifiableNavigableMap(rowMap.subMap(fromRow, true, toRow, false));
+    }
+
+    public C firstColumn(R row) {
+        NavigableMap<C, V> cols = colMap(row);
+        return cols.isEmpty() ? null : cols.firstKey();
+    }
+
+    public C lastColumn(R row) {
+        NavigableMap<C, V> cols = colMap(row);
+        return cols.isEmpty() ? null : cols.lastKey();
+    }
+
+    public C ceilingColumn(R row, C col) {
+        return colMap(row).ceilingKey(col);
+    }
+
+    public C higherColumn(R row, C col) {
+        return colMap(row).higherKey(col);
+    }
+
+    public C floorColumn(R row, C col) {
+        return colMap(row).floorKey(col);
+    }
+
+    public C lowerColumn(R row, C col) {
+        return colMap(row).lowerKey(col);
+    }
+
+    /**
+     * @return Columns of the row strictly less than toCol
+     */
+    public NavigableMap<C, V> headColumns(R row, C toCol) {
+        return colMap(row).headMap(toCol, false);
+    }
+
+    /**
+     * @return Columns of the row greater than or equal to fromCol
+     */
+    public NavigableMap<C, V> tailColumns(R row, C fromCol) {
+        return colMap(row).tailMap(fromCol, true);
+    }
+
+    /**
+     * @return Columns of the row from fromCol (inclusive) to toCol (exclusive)
+     */
+    public NavigableMap<C, V> columnRange(R row, C fromCol, C toCol) {
+        return colMap(row).subMap(fromCol, true, toCol, false);
+    }
+
+    private NavigableMap<C, V> colMap(R row) {
+        Map<C, V> cols = rowMap.get(row);
+        if (cols == null) {
+            return Collections.emptyNavigableMap();
+        }
+        return (NavigableMap<C, V>) cols;
+    }
+
+    private R nonEmpty(Map.Entry<R, Map<C, V>> entry, boolean ascending) {
+        // Rows emptied through iterators or views are only cleaned up lazily, so skip over them
+        while (entry != null && entry.getValue().isEmpty()) {
+            entry = ascending ? rowMap.higherEntry(entry.getKey()) : rowMap.lowerEntry(entry.getKey());
+        }
+        return entry != null ? entry.getKey() : null;
+    }
+}
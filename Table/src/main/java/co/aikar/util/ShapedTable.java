@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link Table} for wide, regular tables where many rows share the same column keys.
+ *
+ * Instead of a HashMap per row, each row holds a shared, immutable shape that maps column keys to slots, and
+ * an Object[] of values. Rows that add the same columns in the same order share the same shape, much like
+ * hidden classes in a JavaScript VM, so the column keys and index are only stored once per shape.
+ * Adding a new column moves the row to a wider shape, and removing a column only clears its slot.
+ *
+ * Rows that grow past {@link #MAX_SHAPE_SIZE} columns fall back to a plain HashMap. So do rows that would need
+ * a new shape once a shape already has {@link #MAX_TRANSITIONS} wider shapes, or the table already has
+ * {@link #MAX_SHAPES} shapes, as shapes are never freed and irregular column keys would otherwise grow the
+ * shape tree without bound.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public class ShapedTable <R, C, V> extends Table<R, C, V> {
+
+    public static final int MAX_SHAPE_SIZE = 64;
+    public static final int MAX_TRANSITIONS = 16;
+    public static final int MAX_SHAPES = 1024;
+    private static final int LINEAR_SCAN_SIZE = 8;
+    private static final Object ABSENT = new Object();
+
+    public ShapedTable() {
+        this(new HashMap<>());
+    }
+
+    public ShapedTable(Map<R, Map<C, V>> backingRowMap) {
+        this(backingRowMap, new Shape());
+    }
+
+    private ShapedTable(Map<R, Map<C, V>> backingRowMap, Shape root) {
+        super(backingRowMap, r -> new ShapedRow<>(root));
+    }
+
+    private static final class Shape {
+        private final Shape root;
+        private final Object[] keys;
+        private final Map<Object, Integer> slots;
+        private final Map<Object, Shape> transitions = new HashMap<>();
+        private int shapeCount = 1;
+
+        Shape() {
+            this.root = this;
+            this.keys = new Object[0];
+            this.slots = null;
+        }
+
+        private Shape(Shape parent, Object key) {
+            this.root = parent.root;
+            this.keys = Arrays.copyOf(parent.keys, parent.keys.length + 1);
+            this.keys[parent.keys.length] = key;
+            if (keys.length > LINEAR_SCAN_SIZE) {
+                this.slots = new HashMap<>(keys.length * 2);
+                for (int i = 0; i < keys.length; i++) {
+                    slots.put(keys[i], i);
+                }
+            } else {
+                this.slots = null;
+            }
+        }
+
+        /**
+         * @return The shape with the key added, or null if the row should fall back to a plain map
+         */
+        Shape with(Object key) {
+            Shape next = transitions.get(key);
+            if (next != null || keys.length >= MAX_SHAPE_SIZE
+                    || transitions.size() >= MAX_TRANSITIONS || root.shapeCount >= MAX_SHAPES) {
+                return next;
+            }
+            next = new Shape(this, key);
+            transitions.put(key, next);
+            root.shapeCount++;
+            return next;
+        }
+
+        int slotOf(Object key) {
+            if (slots != null) {
+                Integer slot = slots.get(key);
+                return slot != null ? slot : -1;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (Objects.equals(keys[i], key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class ShapedRow <C, V> extends AbstractMap<C, V> {
+        private Shape shape;
+        private Object[] values;
+        private int size;
+        private Map<C, V> dictionary;
+
+        ShapedRow(Shape shape) {
+            this.shape = shape;
+            this.values = new Object[shape.keys.length];
+            Arrays.fill(values, ABSENT);
+        }
+
+        @Override
+        public int size() {
+            return dictionary != null ? dictionary.size() : size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (dictionary != null) {
+                return dictionary.containsKey(key);
+            }
+            int slot = shape.slotOf(key);
+            return slot != -1 && values[slot] != ABSENT;
+        }
+
+        @Override
+        public V get(Object key) {
+            if (dictionary != null) {
+                return dictionary.get(key);
+            }
+            int slot = shape.slotOf(key);
+            return slot != -1 && values[slot] != ABSENT ? valueAt(slot) : null;
+        }
+
+        @Override
+        public V put(C key, V value) {
+            if (dictionary != null) {
+                return dictionary.put(key, value);
+            }
+            int slot = shape.slotOf(key);
+            if (slot == -1) {
+                Shape next = shape.with(key);
+                if (next == null) {
+                    toDictionary();
+                    return dictionary.put(key, value);
+                }
+                shape = next;
+                slot = shape.keys.length - 1;
+                values = Arrays.copyOf(values, shape.keys.length);
+                values[slot] = ABSENT;
+            }
+            if (values[slot] == ABSENT) {
+                values[slot] = value;
+                size++;
+                return null;
+            }
+            V old = valueAt(slot);
+            values[slot] = value;
+            return old;
+        }
+
+        @Override
+        public V remove(Object key) {
+            if (dictionary != null) {
+                return dictionary.remove(key);
+            }
+            int slot = shape.slotOf(key);
+            if (slot == -1 || values[slot] == ABSENT) {
+                return null;
+            }
+            V old = valueAt(slot);
+            values[slot] = ABSENT;
+            size--;
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            if (dictionary != null) {
+                dictionary.clear();
+                return;
+            }
+            Arrays.fill(values, ABSENT);
+            size = 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        private C keyAt(int slot) {
+            return (C) shape.keys[slot];
+        }
+
+        @SuppressWarnings("unchecked")
+        private V valueAt(int slot) {
+            return (V) values[slot];
+        }
+
+        private void toDictionary() {
+            Map<C, V> dictionary = new HashMap<>(shape.keys.length * 2);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != ABSENT) {
+                    dictionary.put(keyAt(i), valueAt(i));
+                }
+            }
+            this.dictionary = dictionary;
+            this.values = null;
+            this.shape = null;
+            this.size = 0;
+        }
+
+        @NotNull
+        @Override
+        public Set<Map.Entry<C, V>> entrySet() {
+            if (dictionary != null) {
+                return dictionary.entrySet();
+            }
+            return new AbstractSet<Map.Entry<C, V>>() {
+                @Override
+                public Iterator<Map.Entry<C, V>> iterator() {
+                    if (dictionary != null) {
+                        return dictionary.entrySet().iterator();
+                    }
+                    return new SlotIterator();
+                }
+
+                @Override
+                public int size() {
+                    return ShapedRow.this.size();
+                }
+            };
+        }
+
+        private final class SlotIterator implements Iterator<Map.Entry<C, V>> {
+            private final Object[] keys = shape.keys;
+            private int next = advance(0);
+            private int last = -1;
+
+            private int advance(int idx) {
+                while (idx < keys.length && values[idx] == ABSENT) {
+                    idx++;
+                }
+                return idx;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < keys.length;
+            }
+
+            @Override
+            public Map.Entry<C, V> next() {
+                if (next >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                int slot = last = next;
+                next = advance(next + 1);
+                return new SimpleEntry<C, V>(keyAt(slot), valueAt(slot)) {
+                    @Override
+                    public V setValue(V value) {
+                        values[slot] = value;
+                        return super.setValue(value);
+                    }
+                };
+            }
+
+            @Override
+            public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                values[last] = ABSENT;
+                size--;
+                last = -1;
+            }
+        }
+    }
+}
@@ -23,20 +23,29 @@
 
 package co.aikar.util;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Spliterators;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.stream.Collector;
 
-public class Table <R, C, V> implements Iterable<Table.Entry<R, C, V>>{
+public class Table <R, C, V> extends AbstractTable<R, C, V> {
 
     private final Map<R, Map<C, V>> rowMap;
     private final Function<R, Map<C, V>> colMapSupplier;
@@ -89,109 +98,183 @@ public class Table <R, C, V> implements Iterable<Table.Entry<R, C, V>>{
         return getColMapForWrite(row).put(col, val);
     }
 
-    public void forEach(TableConsumer<R, C, V> consumer) {
-        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
-            Entry<R, C, V> entry = it.next();
-            consumer.accept(entry.getRow(), entry.getCol(), entry.getValue());
-        }
-    }
-
-    public void forEach(TablePredicate<R, C, V> predicate) {
-        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
-            Entry<R, C, V> entry = it.next();
-            if (!predicate.test(entry.getRow(), entry.getCol(), entry.getValue())) {
-                return;
+    /**
+     * Puts every entry into this table. Consecutive entries for the same row share a single row lookup,
+     * so passing cells grouped by row (as iterating a Table does) resolves each row only once.
+     *
+     * @param entries Entries to put
+     */
+    @Override
+    public void putAll(Iterable<? extends Entry<R, C, V>> entries) {
+        R curRow = null;
+        Map<C, V> colMap = null;
+        for (Entry<R, C, V> entry : entries) {
+            R row = entry.getRow();
+            if (colMap == null || !Objects.equals(curRow, row)) {
+                curRow = row;
+                colMap = getColMapForWrite(row);
             }
+            colMap.put(entry.getCol(), entry.getValue());
         }
     }
 
-    public void removeIf(TablePredicate<R, C, V> predicate) {
-        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
-            Entry<R, C, V> entry = it.next();
-            if (predicate.test(entry.getRow(), entry.getCol(), entry.getValue())) {
-                it.remove();
+    /**
+     * Merges every entry into this table. Consecutive entries for the same row share a single row lookup.
+     *
+     * @param entries Entries to merge
+     * @param function Called with (oldValue, value) when the cell already exists, null removes the cell
+     */
+    @Override
+    public void mergeAll(Iterable<? extends Entry<R, C, V>> entries, BiFunction<? super V, ? super V, ? extends V> function) {
+        R curRow = null;
+        Map<C, V> colMap = null;
+        for (Entry<R, C, V> entry : entries) {
+            R row = entry.getRow();
+            if (colMap == null || !Objects.equals(curRow, row)) {
+                if (colMap != null) {
+                    removeIfEmpty(curRow, colMap);
+                }
+                curRow = row;
+                colMap = getColMapForWrite(row);
             }
+            colMap.merge(entry.getCol(), entry.getValue(), function);
+        }
+        if (colMap != null) {
+            removeIfEmpty(curRow, colMap);
         }
     }
 
-    public Stream<Entry<R, C, V>> stream() {
-        return stream(false);
-    }
-
-    public Stream<Entry<R, C, V>> stream(boolean parallel) {
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), 0), parallel);
-    }
-
+    /**
+     * Splits by rows, so a parallel stream hands whole rows to each task.
+     *
+     * If a subclass overrides {@link #iterator()}, streams wrap that iterator instead, so they always see the same
+     * cells as iteration.
+     */
+    @Override
+    public Spliterator<Entry<R, C, V>> spliterator() {
+        if (overridesIterator(Table.class)) {
+            return super.spliterator();
+        }
+        return new RowSpliterator(rowMap.entrySet().spliterator());
+    }
+
+    /**
+     * Collects into a new Table. Parallel streams build a Table per thread and merge them, resolving cells that
+     * collide with the merge function, which is also used for duplicate cells within a single thread.
+     *
+     * @param merge Resolves two values for the same cell, given the existing value then the new one
+     */
+    public static <T, R, C, V> Collector<T, ?, Table<R, C, V>> toTable(Function<? super T, ? extends R> rowFunction,
+                                                                     Function<? super T, ? extends C> colFunction,
+                                                                     Function<? super T, ? extends V> valueFunction,
+                                                                     BinaryOperator<V> merge) {
+        return toTable(rowFunction, colFunction, valueFunction, merge, Table::new);
+    }
+
+    /**
+     * @see #toTable(Function, Function, Function, BinaryOperator)
+     * @param supplier Creates the Table to collect into, and one per thread when parallel
+     */
+    public static <T, R, C, V, TBL extends Table<R, C, V>> Collector<T, ?, TBL> toTable(Function<? super T, ? extends R> rowFunction,
+                                                                                        Function<? super T, ? extends C> colFunction,
+                                                                                        Function<? super T, ? extends V> valueFunction,
+                                                                                        BinaryOperator<V> merge,
+                                                                                        Supplier<TBL> supplier) {
+        return Collector.of(
+                supplier,
+                (table, t) -> collect(table, rowFunction.apply(t), colFunction.apply(t), valueFunction.apply(t), merge),
+                (left, right) -> {
+                    left.mergeAll(right, merge);
+                    return left;
+                },
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Collects into a single Table backed by ConcurrentHashMaps, which parallel streams add to directly
+     * rather than merging a Table per thread. The result is unordered, and as with ConcurrentHashMap
+     * rows, columns and values may not be null, nor may the merge function return null.
+     *
+     * @see #toTable(Function, Function, Function, BinaryOperator)
+     */
+    public static <T, R, C, V> Collector<T, ?, Table<R, C, V>> toConcurrentTable(Function<? super T, ? extends R> rowFunction,
+                                                                               Function<? super T, ? extends C> colFunction,
+                                                                               Function<? super T, ? extends V> valueFunction,
+                                                                               BinaryOperator<V> merge) {
+        return Collector.of(
+                () -> new Table<>(new ConcurrentHashMap<>(), (Supplier<Map<C, V>>) ConcurrentHashMap::new),
+                (table, t) -> collect(table, rowFunction.apply(t), colFunction.apply(t), valueFunction.apply(t), merge),
+                (left, right) -> {
+                    left.mergeAll(right, merge);
+                    return left;
+                },
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static <R, C, V> void collect(Table<R, C, V> table, R row, C col, V val, BinaryOperator<V> merge) {
+        table.compute(row, col, (r, c, old) -> old == null ? val : merge.apply(old, val));
+    }
+
+    @Override
     public Iterator<Entry<R, C, V>> iterator() {
         return new Iterator<Entry<R, C, V>>() {
             Iterator<Map.Entry<R, Map<C, V>>> rowIter = rowMap.entrySet().iterator();
             Iterator<Map.Entry<C, V>> colIter = null;
+            Iterator<Map.Entry<C, V>> lastColIter = null;
 
             private Map.Entry<R, Map<C, V>> rowEntry;
-            private Map.Entry<C, V> colEntry;
-
-            private Entry<R, C, V> next = getNext();
 
-            private Entry<R, C, V> getNext() {
-                if (colIter == null || !colIter.hasNext()) {
+            @Override
+            public boolean hasNext() {
+                // Rows may be left empty by removals, skip over them
+                while (colIter == null || !colIter.hasNext()) {
                     if (!rowIter.hasNext()) {
-                        return null;
+                        return false;
                     }
                     rowEntry = rowIter.next();
                     colIter = rowEntry.getValue().entrySet().iterator();
                 }
-
-                if (!colIter.hasNext()) {
-                    return null;
-                }
-
-                colEntry = colIter.next();
-
-                return new Node(rowEntry, colEntry);
-            }
-
-            @Override
-            public boolean hasNext() {
-                return this.next != null;
+                return true;
             }
 
             @Override
             public Entry<R, C, V> next() {
-                Entry<R, C, V> entry = this.next;
-                this.next = getNext();
-                return entry;
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastColIter = colIter;
+                return new Node(rowEntry, colIter.next());
             }
 
             @Override
             public void remove() {
-                this.colIter.remove();
+                if (lastColIter == null) {
+                    throw new IllegalStateException();
+                }
+                lastColIter.remove();
+                lastColIter = null;
             }
         };
     }
 
-    public void replaceAll(TableFunction<R, C, V, V> function) {
-        for (Iterator<Entry<R, C, V>> it = this.iterator(); it.hasNext(); ) {
-            Entry<R, C, V> entry = it.next();
-            entry.setValue(function.compose(entry.getRow(), entry.getCol(), entry.getValue()));
-        }
-    }
-
     public V remove(R row, C col) {
-        Map<C, V> rowMap = this.rowMap.get(row);
-        if (rowMap == null) {
+        Map<C, V> colMap = this.rowMap.get(row);
+        if (colMap == null) {
             return null;
         }
-        return rowMap.remove(col);
+        return colMap.remove(col);
     }
 
     @Nullable
     public V replace(R row, C col, V val) {
-        Map<C, V> rowMap = getColMapIfExists(row);
-        if (rowMap == null) {
+        Map<C, V> colMap = getColMapIfExists(row);
+        if (colMap == null) {
             return null;
         }
-        if (rowMap.get(col) != null || rowMap.containsKey(col)) {
-            return rowMap.put(col, val);
+        if (colMap.get(col) != null || colMap.containsKey(col)) {
+            return colMap.put(col, val);
         }
         return null;
     }
@@ -199,12 +282,12 @@ public class Table <R, C, V> implements Iterable<Table.Entry<R, C, V>>{
 
     @Nullable
     public boolean replace(R row, C col, V old, V val) {
-        Map<C, V> rowMap = getColMapIfExists(row);
-        if (rowMap == null) {
+        Map<C, V> colMap = getColMapIfExists(row);
+        if (colMap == null) {
             return false;
         }
-        if (Objects.equals(rowMap.get(col), old)) {
-            rowMap.put(col, val);
+        if (Objects.equals(colMap.get(col), old)) {
+            colMap.put(col, val);
             return true;
         }
         return false;
@@ -235,13 +318,29 @@ public class Table <R, C, V> implements Iterable<Table.Entry<R, C, V>>{
         return v;
     }
 
+    @Override
+    public boolean containsRow(R row) {
+        Map<C, V> colMap = this.rowMap.get(row);
+        return colMap != null && !colMap.isEmpty();
+    }
+
+    @Override
+    protected Collection<R> rowKeys() {
+        return this.rowMap.keySet();
+    }
+
+    @Override
+    protected Map<C, V> rowCells(R row) {
+        Map<C, V> colMap = this.rowMap.get(row);
+        return colMap != null && !colMap.isEmpty() ? colMap : null;
+    }
+
     public Map<C, V> row(R row) {
-        Map<C, V> EMPTY = new HashMap<>(0);
         return new DelegatingMap<C, V>() {
             @Override
             public Map<C, V> delegate(boolean readOnly) {
                 if (readOnly) {
-                    return Table.this.rowMap.getOrDefault(row, EMPTY);
+                    return Table.this.rowMap.getOrDefault(row, Collections.emptyMap());
                 }
                 return getColMapForWrite(row);
             }
@@ -253,9 +352,71 @@ public class Table <R, C, V> implements Iterable<Table.Entry<R, C, V>>{
                 removeIfEmpty(row, delegate);
                 return remove;
             }
+
+            // The views only remove, which is a no-op on a missing row, so they read through the read delegate
+            // instead of creating the row. It is looked up again on every call, so a view taken before the row
+            // existed still sees later puts.
+            @NotNull
+            @Override
+            public Set<C> keySet() {
+                return new AbstractSet<C>() {
+                    @Override
+                    public Iterator<C> iterator() {
+                        return delegate(true).keySet().iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return delegate(true).size();
+                    }
+
+                    @Override
+                    public boolean contains(Object o) {
+                        return delegate(true).containsKey(o);
+                    }
+                };
+            }
+
+            @NotNull
+            @Override
+            public Collection<V> values() {
+                return new AbstractCollection<V>() {
+                    @Override
+                    public Iterator<V> iterator() {
+                        return delegate(true).values().iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return delegate(true).size();
+                    }
+                };
+            }
+
+            @NotNull
+            @Override
+            public Set<Map.Entry<C, V>> entrySet() {
+                return new AbstractSet<Map.Entry<C, V>>() {
+                    @Override
+                    public Iterator<Map.Entry<C, V>> iterator() {
+                        return delegate(true).entrySet().iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return delegate(true).size();
+                    }
+
+                    @Override
+                    public boolean contains(Object o) {
+                        return delegate(true).entrySet().contains(o);
+                    }
+                };
+            }
             // iterators may leave us empty, but the next get will remove it.
         };
     }
+
     // Other stuff
 
     public interface TablePredicate<R, C, V> {
@@ -303,6 +464,51 @@ public class Table <R, C, V> implements Iterable<Table.Entry<R, C, V>>{
         V setValue(V value);
     }
 
+    private class RowSpliterator implements Spliterator<Entry<R, C, V>> {
+        private final Spliterator<Map.Entry<R, Map<C, V>>> rows;
+        private final Consumer<Map.Entry<R, Map<C, V>>> nextRow = this::nextRow;
+        private Map.Entry<R, Map<C, V>> rowEntry;
+        private Iterator<Map.Entry<C, V>> colIter;
+
+        RowSpliterator(Spliterator<Map.Entry<R, Map<C, V>>> rows) {
+            this.rows = rows;
+        }
+
+        private void nextRow(Map.Entry<R, Map<C, V>> rowEntry) {
+            this.rowEntry = rowEntry;
+            this.colIter = rowEntry.getValue().entrySet().iterator();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Entry<R, C, V>> action) {
+            while (colIter == null || !colIter.hasNext()) {
+                if (!rows.tryAdvance(nextRow)) {
+                    return false;
+                }
+            }
+            action.accept(new Node(rowEntry, colIter.next()));
+            return true;
+        }
+
+        @Override
+        public Spliterator<Entry<R, C, V>> trySplit() {
+            // The current row stays with this half, only rows not started yet are handed off
+            Spliterator<Map.Entry<R, Map<C, V>>> split = rows.trySplit();
+            return split != null ? new RowSpliterator(split) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            // Rows, not cells, but only used to balance splits
+            return rows.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL;
+        }
+    }
+
     private class Node implements Entry <R, C, V> {
 
         private final Map.Entry<R, Map<C, V>> rowEntry;
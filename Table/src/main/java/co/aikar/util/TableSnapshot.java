@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a {@link Table} on disk, so a table can be restored after a restart without rebuilding it.
+ *
+ * Snapshots are written sequentially through a {@link FileChannel} into a temporary file which is then moved over
+ * the target, and the header carries a CRC32 of the payload so a torn or corrupted file is rejected on open.
+ *
+ * Reading maps the file with a {@link MappedByteBuffer}. The snapshot can either be bulk loaded into a table
+ * with {@link #readInto(AbstractTable)}, or iterated, which decodes cells lazily straight from the mapped file.
+ *
+ * Keys and values are encoded with a {@link Codec} per type. Codecs for common types are provided as constants.
+ *
+ * @param <R> Row Type
+ * @param <C> Column Type
+ * @param <V> Value Type
+ */
+public final class TableSnapshot <R, C, V> implements Iterable<Table.Entry<R, C, V>> {
+
+    private static final int MAGIC = 0x41544253; // ATBS
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte CELL = 1;
+    private static final byte END_ROW = 0;
+
+    private final MappedByteBuffer buffer;
+    private final long cellCount;
+    private final Codec<R> rowCodec;
+    private final Codec<C> colCodec;
+    private final Codec<V> valCodec;
+
+    private TableSnapshot(MappedByteBuffer buffer, long cellCount, Codec<R> rowCodec, Codec<C> colCodec, Codec<V> valCodec) {
+        this.buffer = buffer;
+        this.cellCount = cellCount;
+        this.rowCodec = rowCodec;
+        this.colCodec = colCodec;
+        this.valCodec = valCodec;
+    }
+
+    /**
+     * Encodes values of a single type for a snapshot.
+     *
+     * @param <T> Type
+     */
+    public interface Codec <T> {
+        /**
+         * @param value Value to encode
+         * @return Number of bytes {@link #write} will use for this value
+         */
+        int size(T value);
+        void write(T value, ByteBuffer buf);
+        T read(ByteBuffer buf);
+    }
+
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public int size(Integer value) {
+            return 4;
+        }
+
+        @Override
+        public void write(Integer value, ByteBuffer buf) {
+            buf.putInt(value);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buf) {
+            return buf.getInt();
+        }
+    };
+
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public int size(Long value) {
+            return 8;
+        }
+
+        @Override
+        public void write(Long value, ByteBuffer buf) {
+            buf.putLong(value);
+        }
+
+        @Override
+        public Long read(ByteBuffer buf) {
+            return buf.getLong();
+        }
+    };
+
+    public static final Codec<Double> DOUBLE = new Codec<Double>() {
+        @Override
+        public int size(Double value) {
+            return 8;
+        }
+
+        @Override
+        public void write(Double value, ByteBuffer buf) {
+            buf.putDouble(value);
+        }
+
+        @Override
+        public Double read(ByteBuffer buf) {
+            return buf.getDouble();
+        }
+    };
+
+    public static final Codec<java.util.UUID> UUID = new Codec<java.util.UUID>() {
+        @Override
+        public int size(java.util.UUID value) {
+            return 16;
+        }
+
+        @Override
+        public void write(java.util.UUID value, ByteBuffer buf) {
+            buf.putLong(value.getMostSignificantBits());
+            buf.putLong(value.getLeastSignificantBits());
+        }
+
+        @Override
+        public java.util.UUID read(ByteBuffer buf) {
+            return new java.util.UUID(buf.getLong(), buf.getLong());
+        }
+    };
+
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public int size(String value) {
+            return 4 + value.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public void write(String value, ByteBuffer buf) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buf.putInt(bytes.length);
+            buf.put(bytes);
+        }
+
+        @Override
+        public String read(ByteBuffer buf) {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    public static <E extends Enum<E>> Codec<E> ofEnum(Class<E> enumClass) {
+        E[] constants = enumClass.getEnumConstants();
+        return new Codec<E>() {
+            @Override
+            public int size(E value) {
+                return 4;
+            }
+
+            @Override
+            public void write(E value, ByteBuffer buf) {
+                buf.putInt(value.ordinal());
+            }
+
+            @Override
+            public E read(ByteBuffer buf) {
+                return constants[buf.getInt()];
+            }
+        };
+    }
+
+    /**
+     * Wraps a codec to also support null values, at the cost of one extra byte per value.
+     *
+     * @param codec Codec to wrap
+     * @param <T> Type
+     * @return Codec
+     */
+    public static <T> Codec<T> nullable(Codec<T> codec) {
+        return new Codec<T>() {
+            @Override
+            public int size(T value) {
+                return value == null ? 1 : 1 + codec.size(value);
+            }
+
+            @Override
+            public void write(T value, ByteBuffer buf) {
+                buf.put((byte) (value == null ? 0 : 1));
+                if (value != null) {
+                    codec.write(value, buf);
+                }
+            }
+
+            @Override
+            public T read(ByteBuffer buf) {
+                return buf.get() == 0 ? null : codec.read(buf);
+            }
+        };
+    }
+
+    /**
+     * Writes the contents of a table to a snapshot file, replacing it if it exists.
+     *
+     * The data is first written to a temporary file next to the target and only moved into place once complete.
+     *
+     * @param table Table to write
+     * @param path File to write to
+     * @param rowCodec Codec for row keys
+     * @param colCodec Codec for column keys
+     * @param valCodec Codec for values
+     * @param <R> Row Type
+     * @param <C> Column Type
+     * @param <V> Value Type
+     * @throws IOException If the file could not be written
+     */
+    public static <R, C, V> void write(AbstractTable<R, C, V> table, Path path, Codec<R> rowCodec, Codec<C> colCodec, Codec<V> valCodec) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            Writer writer = new Writer(channel);
+
+            // Cells are written in runs sharing a row key, which for a regular Table is one run per row
+            long cells = 0;
+            boolean inRow = false;
+            R curRow = null;
+            for (Table.Entry<R, C, V> entry : table) {
+                R row = entry.getRow();
+                if (!inRow || !Objects.equals(curRow, row)) {
+                    if (inRow) {
+                        writer.ensure(1).put(END_ROW);
+                    }
+                    rowCodec.write(row, writer.ensure(1 + rowCodec.size(row)).put(CELL));
+                    curRow = row;
+                    inRow = true;
+                }
+                C col = entry.getCol();
+                V val = entry.getValue();
+                ByteBuffer buf = writer.ensure(1 + colCodec.size(col) + valCodec.size(val)).put(CELL);
+                colCodec.write(col, buf);
+                valCodec.write(val, buf);
+                cells++;
+            }
+            if (inRow) {
+                writer.ensure(1).put(END_ROW);
+            }
+            writer.ensure(1).put(END_ROW);
+            writer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putLong(cells);
+            header.putLong(writer.written);
+            header.putInt((int) writer.crc.getValue());
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens a snapshot file, verifying its header and checksum. No cells are decoded until the snapshot is read.
+     *
+     * @param path File to open
+     * @param rowCodec Codec for row keys
+     * @param colCodec Codec for column keys
+     * @param valCodec Codec for values
+     * @param <R> Row Type
+     * @param <C> Column Type
+     * @param <V> Value Type
+     * @return Snapshot
+     * @throws IOException If the file could not be read, or is not a complete snapshot
+     */
+    public static <R, C, V> TableSnapshot<R, C, V> open(Path path, Codec<R> rowCodec, Codec<C> colCodec, Codec<V> valCodec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Snapshot " + path + " is truncated");
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " is too large to map");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a table snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + path);
+            }
+            long cells = buffer.getLong();
+            long length = buffer.getLong();
+            int checksum = buffer.getInt();
+            if (length != fileSize - HEADER_SIZE) {
+                throw new IOException("Snapshot " + path + " is truncated");
+            }
+
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Snapshot " + path + " failed checksum validation");
+            }
+            return new TableSnapshot<>(buffer, cells, rowCodec, colCodec, valCodec);
+        }
+    }
+
+    /**
+     * Opens a snapshot and loads all of it into a new Table.
+     *
+     * @see #open
+     */
+    public static <R, C, V> Table<R, C, V> read(Path path, Codec<R> rowCodec, Codec<C> colCodec, Codec<V> valCodec) throws IOException {
+        Table<R, C, V> table = new Table<>();
+        open(path, rowCodec, colCodec, valCodec).readInto(table);
+        return table;
+    }
+
+    /**
+     * @return Number of cells in the snapshot
+     */
+    public long cellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Decodes every cell of the snapshot into the table.
+     *
+     * @param table Table to load into
+     */
+    public void readInto(AbstractTable<R, C, V> table) {
+        // Cells come out grouped by row, so each row is only resolved once
+        table.putAll(this);
+    }
+
+    /**
+     * Iterates the snapshot, decoding each cell from the mapped file as it is reached. The entries are read only.
+     */
+    @NotNull
+    @Override
+    public Iterator<Table.Entry<R, C, V>> iterator() {
+        ByteBuffer buf = payload();
+        return new Iterator<Table.Entry<R, C, V>>() {
+            private R row;
+            private boolean inRow;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (done) {
+                    return false;
+                }
+                while (!inRow) {
+                    if (buf.get() != CELL) {
+                        done = true;
+                        return false;
+                    }
+                    row = rowCodec.read(buf);
+                    inRow = true;
+                }
+                int pos = buf.position();
+                if (buf.get() == CELL) {
+                    buf.position(pos);
+                    return true;
+                }
+                inRow = false;
+                return hasNext();
+            }
+
+            @Override
+            public Table.Entry<R, C, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                buf.get();
+                return new Cell<>(row, colCodec.read(buf), valCodec.read(buf));
+            }
+        };
+    }
+
+    private ByteBuffer payload() {
+        ByteBuffer buf = buffer.duplicate();
+        buf.position(HEADER_SIZE);
+        return buf;
+    }
+
+    private static class Writer {
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long written;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buf.remaining() < bytes) {
+                flush();
+                if (buf.capacity() < bytes) {
+                    buf = ByteBuffer.allocateDirect(bytes);
+                }
+            }
+            return buf;
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            ByteBuffer check = buf.duplicate();
+            crc.update(check);
+            written += buf.remaining();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            buf.clear();
+        }
+    }
+
+    private static class Cell <R, C, V> implements Table.Entry<R, C, V> {
+        private final R row;
+        private final C col;
+        private final V val;
+
+        Cell(R row, C col, V val) {
+            this.row = row;
+            this.col = col;
+            this.val = val;
+        }
+
+        @Override
+        public R getRow() {
+            return row;
+        }
+
+        @Override
+        public C getCol() {
+            return col;
+        }
+
+        @Override
+        public V getValue() {
+            return val;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExpiringTableTest {
+
+    private long now = 1000;
+
+    private ExpiringTable<Integer, Integer, String> newTable() {
+        return new ExpiringTable<>(100, TimeUnit.MILLISECONDS, () -> now);
+    }
+
+    @Test
+    public void expiresAtTtl() {
+        ExpiringTable<Integer, Integer, String> table = newTable();
+        table.put(1, 1, "a");
+        now += 99;
+        assertEquals("a", table.get(1, 1));
+        assertEquals(1, table.getRemaining(1, 1, TimeUnit.MILLISECONDS));
+        now += 1;
+        assertNull(table.get(1, 1));
+        assertFalse(table.containsKey(1, 1));
+        assertEquals(0, table.getRemaining(1, 1, TimeUnit.MILLISECONDS));
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void putRestartsTtl() {
+        ExpiringTable<Integer, Integer, String> table = newTable();
+        table.put(1, 1, "a");
+        now += 60;
+        assertEquals("a", table.put(1, 1, "b"));
+        now += 60;
+        assertEquals("b", table.get(1, 1));
+        now += 40;
+        assertNull(table.get(1, 1));
+        assertNull("expired values are not returned", table.put(1, 1, "c"));
+    }
+
+    @Test
+    public void cleanUpCountsExpired() {
+        ExpiringTable<Integer, Integer, String> table = newTable();
+        for (int i = 0; i < 10; i++) {
+            table.put(i, i, "v", i < 4 ? 10 : 1000, TimeUnit.MILLISECONDS);
+        }
+        now += 10;
+        assertEquals(4, table.cleanUp());
+        assertEquals(0, table.cleanUp());
+        assertEquals(6, table.size());
+        now += 1000;
+        assertEquals(6, table.cleanUp());
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void removeAndClear() {
+        ExpiringTable<Integer, Integer, String> table = newTable();
+        table.put(1, 1, "a");
+        table.put(1, 2, "b");
+        assertEquals("a", table.remove(1, 1));
+        assertNull(table.remove(1, 1));
+        table.clear();
+        assertEquals(0, table.size());
+        now += 1000;
+        assertEquals("removed cells must not stay scheduled", 0, table.cleanUp());
+    }
+
+    /**
+     * Drives the wheel with TTLs and clock jumps across every level, including past the last one, and checks each
+     * cleanUp removes exactly the cells that expired, without relying on reads to expire them.
+     */
+    @Test
+    public void matchesModel() {
+        Random random = new Random(1);
+        ExpiringTable<Integer, Integer, Integer> table = new ExpiringTable<>(1, TimeUnit.MILLISECONDS, () -> now);
+        Map<Integer, Long> expiry = new HashMap<>();
+        for (int round = 0; round < 20000; round++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(8) == 0) {
+                table.remove(key, key);
+                expiry.remove(key);
+            } else {
+                long ttl = 1 + (long) (Math.pow(2, random.nextDouble() * 26));
+                table.put(key, key, key, ttl, TimeUnit.MILLISECONDS);
+                expiry.put(key, now + ttl);
+            }
+            if (random.nextInt(4) == 0) {
+                now += random.nextInt(3) == 0 ? random.nextInt(1 << 20) : random.nextInt(64);
+                int expired = 0;
+                for (Iterator<Long> it = expiry.values().iterator(); it.hasNext(); ) {
+                    if (it.next() <= now) {
+                        it.remove();
+                        expired++;
+                    }
+                }
+                assertEquals("round " + round, expired, table.cleanUp());
+                assertEquals(expiry.size(), table.size());
+            }
+        }
+        for (Map.Entry<Integer, Long> entry : expiry.entrySet()) {
+            int key = entry.getKey();
+            assertEquals(entry.getValue() - now, table.getRemaining(key, key, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImmutableTableTest {
+
+    @Test
+    public void copyOfMatchesSource() {
+        Random random = new Random(1);
+        Table<Integer, Integer, Integer> table = new Table<>();
+        Map<Integer, Map<Integer, Integer>> expected = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int row = random.nextInt(200);
+            int col = random.nextInt(100);
+            int value = random.nextInt();
+            table.put(row, col, value);
+            expected.computeIfAbsent(row, k -> new HashMap<>()).put(col, value);
+        }
+        ImmutableTable<Integer, Integer, Integer> copy = ImmutableTable.copyOf(table);
+        int cells = 0;
+        for (Map.Entry<Integer, Map<Integer, Integer>> row : expected.entrySet()) {
+            assertTrue(copy.containsRow(row.getKey()));
+            for (Map.Entry<Integer, Integer> cell : row.getValue().entrySet()) {
+                assertEquals(cell.getValue(), copy.get(row.getKey(), cell.getKey()));
+                cells++;
+            }
+        }
+        assertEquals(cells, copy.size());
+        assertEquals(expected.keySet(), copy.rowKeySet());
+        assertFalse(copy.containsRow(200));
+        assertFalse(copy.containsKey(0, 100));
+        assertEquals(-1, (int) copy.getOrDefault(200, 0, -1));
+    }
+
+    @Test
+    public void copyIsNotAffectedByLaterWrites() {
+        Table<String, String, String> table = new Table<>();
+        table.put("a", "b", "c");
+        ImmutableTable<String, String, String> copy = table.freeze();
+        table.put("a", "b", "d");
+        table.put("e", "f", "g");
+        table.remove("a", "b");
+        assertEquals("c", copy.get("a", "b"));
+        assertFalse(copy.containsRow("e"));
+        assertEquals(1, copy.size());
+    }
+
+    @Test
+    public void emptyTable() {
+        ImmutableTable<Integer, Integer, Integer> copy = ImmutableTable.copyOf(new Table<>());
+        assertTrue(copy.isEmpty());
+        assertFalse(copy.iterator().hasNext());
+        assertNull(copy.get(1, 1));
+        assertTrue(copy.row(1).isEmpty());
+    }
+
+    @Test
+    public void rowLookup() {
+        Table<Integer, String, Integer> table = new Table<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            table.put(1, "col" + i, i);
+            expected.put("col" + i, i);
+            table.put(2, "col" + i, -i);
+        }
+        table.put(3, "only", 3);
+        ImmutableTable<Integer, String, Integer> copy = ImmutableTable.copyOf(table);
+        Map<String, Integer> row = copy.row(1);
+        assertEquals(expected, row);
+        assertEquals(50, row.size());
+        assertEquals(7, (int) row.get("col7"));
+        assertTrue(row.containsKey("col49"));
+        assertFalse(row.containsKey("col50"));
+        assertEquals(1, copy.row(3).size());
+        assertTrue("missing rows are empty", copy.row(4).isEmpty());
+    }
+
+    /**
+     * Cells are stored grouped by row, so every row must come out of the iterator as one contiguous run.
+     */
+    @Test
+    public void iterationGroupsCellsByRow() {
+        Random random = new Random(2);
+        Table<Integer, Integer, Integer> table = new Table<>();
+        for (int i = 0; i < 3000; i++) {
+            int row = random.nextInt(60);
+            int col = random.nextInt(60);
+            table.put(row, col, row * 1000 + col);
+        }
+        ImmutableTable<Integer, Integer, Integer> copy = ImmutableTable.copyOf(table);
+        Set<Integer> finished = new HashSet<>();
+        Integer current = null;
+        int count = 0;
+        for (Table.Entry<Integer, Integer, Integer> entry : copy) {
+            if (!entry.getRow().equals(current)) {
+                assertTrue("row " + entry.getRow() + " is split", finished.add(entry.getRow()));
+                current = entry.getRow();
+            }
+            assertEquals(entry.getRow() * 1000 + entry.getCol(), (int) entry.getValue());
+            count++;
+        }
+        assertEquals(copy.size(), count);
+        assertEquals(copy.rowKeySet(), finished);
+        assertEquals(count, copy.stream().count());
+    }
+
+    /**
+     * Columns are binary searched by hash, so columns sharing a hash must still be told apart by equals,
+     * including when they sit next to columns with other hashes in the same row.
+     */
+    @Test
+    public void columnHashCollisions() {
+        Table<Integer, Key, Integer> table = new Table<>();
+        for (int i = 0; i < 40; i++) {
+            table.put(1, new Key(i, i < 20 ? 42 : (i % 4) << 16), i);
+            table.put(2, new Key(i, 42), -i);
+        }
+        ImmutableTable<Integer, Key, Integer> copy = ImmutableTable.copyOf(table);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(i, (int) copy.get(1, new Key(i, i < 20 ? 42 : (i % 4) << 16)));
+            assertEquals(-i, (int) copy.get(2, new Key(i, 42)));
+        }
+        assertNull(copy.get(1, new Key(40, 42)));
+        assertFalse(copy.containsKey(2, new Key(40, 42)));
+        assertEquals(40, copy.row(1).size());
+    }
+
+    private static final class Key {
+        private final int id;
+        private final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
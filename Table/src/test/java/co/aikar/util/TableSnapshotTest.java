@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016-2018 Daniel Ennis (Aikar) - MIT License
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining
+ *  a copy of this software and associated documentation files (the
+ *  "Software"), to deal in the Software without restriction, including
+ *  without limitation the rights to use, copy, modify, merge, publish,
+ *  distribute, sublicense, and/or sell copies of the Software, and to
+ *  permit persons to whom the Software is furnished to do so, subject to
+ *  the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be
+ *  included in all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *  EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *  MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *  NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ *  LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ *  OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ *  WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package co.aikar.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TableSnapshotTest {
+
+    private Path dir;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot");
+        file = dir.resolve("table.bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Random random = new Random(1);
+        Table<UUID, String, Long> table = new Table<>();
+        for (int i = 0; i < 2000; i++) {
+            table.put(new UUID(random.nextInt(50), 0), "col" + random.nextInt(100), random.nextLong());
+        }
+        TableSnapshot.write(table, file, TableSnapshot.UUID, TableSnapshot.STRING, TableSnapshot.LONG);
+        assertFalse("temporary file is moved into place", Files.exists(dir.resolve("table.bin.tmp")));
+
+        TableSnapshot<UUID, String, Long> snapshot = TableSnapshot.open(file, TableSnapshot.UUID, TableSnapshot.STRING, TableSnapshot.LONG);
+        assertEquals(table.stream().count(), snapshot.cellCount());
+        Table<UUID, String, Long> copy = new Table<>();
+        snapshot.readInto(copy);
+        assertEquals(table.stream().count(), copy.stream().count());
+        for (Table.Entry<UUID, String, Long> entry : table) {
+            assertEquals(entry.getValue(), copy.get(entry.getRow(), entry.getCol()));
+        }
+    }
+
+    @Test
+    public void emptyTable() throws IOException {
+        TableSnapshot.write(new Table<Integer, Integer, Integer>(), file, TableSnapshot.INTEGER, TableSnapshot.INTEGER, TableSnapshot.INTEGER);
+        TableSnapshot<Integer, Integer, Integer> snapshot = TableSnapshot.open(file, TableSnapshot.INTEGER, TableSnapshot.INTEGER, TableSnapshot.INTEGER);
+        assertEquals(0, snapshot.cellCount());
+        assertFalse(snapshot.iterator().hasNext());
+    }
+
+    @Test
+    public void nullableAndEnumCodecs() throws IOException {
+        Table<TimeUnit, Integer, String> table = new Table<>();
+        table.put(TimeUnit.SECONDS, 1, "one");
+        table.put(TimeUnit.SECONDS, 2, null);
+        table.put(TimeUnit.DAYS, 3, "");
+        TableSnapshot.Codec<TimeUnit> units = TableSnapshot.ofEnum(TimeUnit.class);
+        TableSnapshot.Codec<String> strings = TableSnapshot.nullable(TableSnapshot.STRING);
+        TableSnapshot.write(table, file, units, TableSnapshot.INTEGER, strings);
+
+        Table<TimeUnit, Integer, String> copy = TableSnapshot.read(file, units, TableSnapshot.INTEGER, strings);
+        assertEquals(3, copy.stream().count());
+        assertEquals("one", copy.get(TimeUnit.SECONDS, 1));
+        assertTrue(copy.containsKey(TimeUnit.SECONDS, 2));
+        assertNull(copy.get(TimeUnit.SECONDS, 2));
+        assertEquals("", copy.get(TimeUnit.DAYS, 3));
+    }
+
+    /**
+     * The header is part of the file format: magic, version, cell count, payload length and CRC32, big endian.
+     */
+    @Test
+    public void headerLayout() throws IOException {
+        Table<Integer, Integer, Integer> table = new Table<>();
+        table.put(1, 2, 3);
+        table.put(1, 4, 5);
+        table.put(6, 7, 8);
+        TableSnapshot.write(table, file, TableSnapshot.INTEGER, TableSnapshot.INTEGER, TableSnapshot.INTEGER);
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(0x41544253, buf.getInt());
+        assertEquals(1, buf.getInt());
+        assertEquals(3, buf.getLong());
+        // Per row: CELL + row key, then CELL + col + value per cell, then END_ROW. One more END_ROW ends the file.
+        long payload = 2 * 5 + 3 * 9 + 2 + 1;
+        assertEquals(payload, buf.getLong());
+        assertEquals(32 + payload, buf.capacity());
+    }
+
+    @Test
+    public void rejectsCorruptPayload() throws IOException {
+        writeSample();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 3] ^= 1;
+        Files.write(file, bytes);
+        assertRejected("checksum");
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        writeSample();
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        Files.write(file, truncated);
+        assertRejected("truncated");
+
+        Files.write(file, new byte[10]);
+        assertRejected("truncated");
+    }
+
+    @Test
+    public void rejectsOtherFilesAndVersions() throws IOException {
+        writeSample();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7] = 2;
+        Files.write(file, bytes);
+        assertRejected("version");
+
+        bytes[0] = 0;
+        Files.write(file, bytes);
+        assertRejected("not a table snapshot");
+    }
+
+    @Test
+    public void iteratorDecodesLazily() throws IOException {
+        writeSample();
+        TableSnapshot<Integer, Integer, Integer> snapshot = TableSnapshot.open(file, TableSnapshot.INTEGER, TableSnapshot.INTEGER, TableSnapshot.INTEGER);
+        int count = 0;
+        for (Iterator<Table.Entry<Integer, Integer, Integer>> it = snapshot.iterator(); it.hasNext(); ) {
+            assertTrue("hasNext must not consume a cell", it.hasNext());
+            Table.Entry<Integer, Integer, Integer> entry = it.next();
+            assertEquals(entry.getRow() * 100 + entry.getCol(), (int) entry.getValue());
+            count++;
+        }
+        assertEquals(snapshot.cellCount(), count);
+    }
+
+    private void writeSample() throws IOException {
+        Table<Integer, Integer, Integer> table = new Table<>();
+        for (int row = 0; row < 10; row++) {
+            for (int col = 0; col < 10; col++) {
+                table.put(row, col, row * 100 + col);
+            }
+        }
+        TableSnapshot.write(table, file, TableSnapshot.INTEGER, TableSnapshot.INTEGER, TableSnapshot.INTEGER);
+    }
+
+    private void assertRejected(String reason) {
+        try {
+            TableSnapshot.open(file, TableSnapshot.INTEGER, TableSnapshot.INTEGER, TableSnapshot.INTEGER);
+            fail("expected " + reason);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(reason));
+        }
+    }
+}